@@ -8,6 +8,9 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.TargetDataLine;
 
+import com.litongjava.zoom.translator.caption.CaptureClock;
+import com.litongjava.zoom.translator.dsp.AudioProcessingPipeline;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -18,6 +21,12 @@ public class AudioRecorder {
   private BlockingQueue<byte[]> audioQueue;
   private volatile boolean running;
   private Thread recordingThread;
+  private AudioProcessingPipeline processingPipeline;
+  private int bufferSize;
+  private long droppedChunks;
+  private volatile CaptureClock captureClock;
+  private volatile AudioGate audioGate;
+  private long gatedChunks;
 
   // Audio settings for Google Speech-to-Text
   private static final int SAMPLE_RATE = 16000; // Hz
@@ -29,49 +38,116 @@ public class AudioRecorder {
   // Buffer size (e.g., 100ms of audio at 16kHz, 16-bit mono = 16000  2 bytes/sec  0.1 sec = 3200 bytes)
   private static final int BUFFER_SIZE = SAMPLE_RATE * SAMPLE_SIZE_IN_BITS / 8 * CHANNELS / 10;
 
+  public static AudioFormat defaultFormat() {
+    return new AudioFormat(SAMPLE_RATE, SAMPLE_SIZE_IN_BITS, CHANNELS, SIGNED, BIG_ENDIAN);
+  }
+
   public AudioRecorder(TargetDataLine line, BlockingQueue<byte[]> audioQueue) throws LineUnavailableException {
+    this(line, audioQueue, defaultFormat(), BUFFER_SIZE);
+  }
+
+  // Format and chunk size come from the session profile
+  public AudioRecorder(TargetDataLine line, BlockingQueue<byte[]> audioQueue, AudioFormat format, int bufferSize) throws LineUnavailableException {
     this.line = line;
     this.audioQueue = audioQueue;
-    this.format = new AudioFormat(SAMPLE_RATE, SAMPLE_SIZE_IN_BITS, CHANNELS, SIGNED, BIG_ENDIAN);
+    this.format = format;
+    this.bufferSize = bufferSize;
 
     if (!line.isOpen()) {
-      line.open(format, BUFFER_SIZE * 2); // Open with a larger internal buffer
+      line.open(format, bufferSize * 2); // Open with a larger internal buffer
       log.info("Audio line opened: " + line.getLineInfo());
     }
   }
 
+  // Optional DSP stage, runs on the recording thread before a chunk is queued
+  public void setProcessingPipeline(AudioProcessingPipeline processingPipeline) {
+    this.processingPipeline = processingPipeline;
+  }
+
+  /**
+   * Decides whether a captured chunk is sent on; chunks it rejects are left out of the queue and recorded as
+   * gaps on the capture clock.
+   */
+  public interface AudioGate {
+    boolean admit(int millis, boolean speech);
+  }
+
+  public void setAudioGate(AudioGate audioGate) {
+    this.audioGate = audioGate;
+  }
+
   public void startRecording() {
     if (running)
       return;
 
     running = true;
+    droppedChunks = 0;
+    gatedChunks = 0;
+    if (processingPipeline != null) {
+      processingPipeline.reset();
+    }
+    captureClock = new CaptureClock((int) format.getSampleRate(), System.currentTimeMillis());
+    CaptureClock clock = captureClock;
     line.start(); // Start capturing audio
     log.info("Audio recording started on line: " + line.getLineInfo());
 
     recordingThread = new Thread(() -> {
-      byte[] buffer = new byte[BUFFER_SIZE];
+      byte[] buffer = new byte[bufferSize];
       int bytesRead;
 
       while (running) {
         bytesRead = line.read(buffer, 0, buffer.length);
         if (bytesRead > 0) {
-          try {
-            // Make a copy to avoid buffer modification issues
-            byte[] audioChunk = new byte[bytesRead];
-            System.arraycopy(buffer, 0, audioChunk, 0, bytesRead);
-            audioQueue.put(audioChunk);
-          } catch (InterruptedException e) {
-            log.warn("Audio recording thread interrupted while putting to queue.", e);
-            Thread.currentThread().interrupt();
-            break;
+          if (processingPipeline != null) {
+            processingPipeline.process(buffer, bytesRead);
+          }
+          AudioGate gate = audioGate;
+          if (gate != null) {
+            int millis = (int) (bytesRead * 1000L / (format.getFrameSize() * (long) format.getSampleRate()));
+            if (!gate.admit(millis, processingPipeline == null || processingPipeline.isSpeech())) {
+              clock.skipped(bytesRead);
+              gatedChunks++;
+              continue;
+            }
+          }
+          // Make a copy to avoid buffer modification issues
+          byte[] audioChunk = new byte[bytesRead];
+          System.arraycopy(buffer, 0, audioChunk, 0, bytesRead);
+          if (!audioQueue.offer(audioChunk)) {
+            // Bounded queue is full because STT fell behind: drop the oldest chunk instead of stalling the line
+            byte[] dropped = audioQueue.poll();
+            if (dropped != null) {
+              clock.dropped(dropped.length, (long) audioQueue.size() * bytesRead);
+            }
+            audioQueue.offer(audioChunk);
+            droppedChunks++;
           }
+          clock.captured(bytesRead);
         }
       }
+      if (processingPipeline != null) {
+        processingPipeline.logStats();
+      }
+      if (gatedChunks > 0) {
+        log.info("Held back " + gatedChunks + " audio chunks under quota pressure.");
+      }
+      if (droppedChunks > 0) {
+        log.warn("Dropped " + droppedChunks + " audio chunks because the audio queue was full.");
+      }
       log.info("Audio recording thread stopped.");
     }, "AudioRecordingThread");
     recordingThread.start();
   }
 
+  // Timeline of the current recording, offset 0 is the first captured sample
+  public CaptureClock getCaptureClock() {
+    return captureClock;
+  }
+
+  public boolean isLineOpen() {
+    return line.isOpen();
+  }
+
   public void stopRecording() {
     running = false;
     if (recordingThread != null) {
@@ -83,7 +159,7 @@ public class AudioRecorder {
         Thread.currentThread().interrupt();
       }
     }
-    if (line != null && line.isRunning()) {
+    if (line != null && line.isOpen()) {
       line.stop();
       line.close();
       log.info("Audio line stopped and closed.");
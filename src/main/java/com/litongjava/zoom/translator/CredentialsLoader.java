@@ -0,0 +1,29 @@
+package com.litongjava.zoom.translator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.auth.oauth2.GoogleCredentials;
+
+public class CredentialsLoader {
+
+  public static final String CLASSPATH_KEY = "google/gen-lang-client-key.json";
+
+  // 从 resources 目录加载 Google Cloud 凭据文件, 没有时使用 GOOGLE_APPLICATION_CREDENTIALS 指向的文件
+  public static GoogleCredentials load() throws IOException {
+    try (InputStream credentialsStream = CredentialsLoader.class.getClassLoader().getResourceAsStream(CLASSPATH_KEY)) {
+      if (credentialsStream != null) {
+        return GoogleCredentials.fromStream(credentialsStream);
+      }
+    }
+    String path = System.getenv("GOOGLE_APPLICATION_CREDENTIALS");
+    if (path != null && !path.isEmpty()) {
+      try (InputStream in = new FileInputStream(path)) {
+        return GoogleCredentials.fromStream(in);
+      }
+    }
+    throw new IOException(
+        "Google Cloud credentials file 'gen-lang-client-key.json' not found in src/main/resources/google. " + "Please ensure it's named 'key.json' and placed directly under src/main/resources.");
+  }
+}
@@ -1,35 +1,57 @@
 package com.litongjava.zoom.translator;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.grpc.GrpcCallContext;
 import com.google.api.gax.rpc.ClientStream;
 import com.google.api.gax.rpc.ResponseObserver;
 import com.google.api.gax.rpc.StreamController;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.speech.v1p1beta1.RecognitionAudio;
 import com.google.cloud.speech.v1p1beta1.RecognitionConfig;
+import com.google.cloud.speech.v1p1beta1.RecognizeRequest;
+import com.google.cloud.speech.v1p1beta1.RecognizeResponse;
 import com.google.cloud.speech.v1p1beta1.SpeechClient;
+import com.google.cloud.speech.v1p1beta1.SpeechRecognitionAlternative;
+import com.google.cloud.speech.v1p1beta1.SpeechRecognitionResult;
 import com.google.cloud.speech.v1p1beta1.SpeechSettings;
 import com.google.cloud.speech.v1p1beta1.StreamingRecognitionConfig;
 import com.google.cloud.speech.v1p1beta1.StreamingRecognitionResult;
 import com.google.cloud.speech.v1p1beta1.StreamingRecognizeRequest;
 import com.google.cloud.speech.v1p1beta1.StreamingRecognizeResponse;
+import com.google.cloud.speech.v1p1beta1.WordInfo;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.litongjava.zoom.translator.caption.TimedWord;
+import com.litongjava.zoom.translator.config.SessionProfile;
+import com.litongjava.zoom.translator.grpc.ChannelPool;
+import com.litongjava.zoom.translator.grpc.ChannelPoolConfig;
+import com.litongjava.zoom.translator.grpc.GoogleChannelPools;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class SpeechToTextService {
 
+  private static final long WARM_UP_TIMEOUT_SECONDS = 10;
+
+  // null when the client opens its own channel
+  private ChannelPool channelPool;
+  private long rpcDeadlineMillis = ChannelPoolConfig.fromSystemProperties().getRpcDeadlineMillis();
   private SpeechClient speechClient;
   private ClientStream<StreamingRecognizeRequest> clientStream;
   private ResponseObserver<StreamingRecognizeResponse> responseObserver;
-  private Consumer<String> resultCallback;
+  private Consumer<TranscriptResult> resultCallback;
   private BlockingQueue<byte[]> audioQueue;
   private volatile boolean streaming = false;
   private Thread audioSenderThread;
+  private volatile Consumer<Throwable> errorListener;
 
   public SpeechToTextService(GoogleCredentials credentials) throws IOException {
     SpeechSettings speechSettings = SpeechSettings.newBuilder()
@@ -38,7 +60,45 @@ public class SpeechToTextService {
     speechClient = SpeechClient.create(speechSettings);
   }
 
+  // Uses the process-wide channel pool instead of opening a connection per service instance
+  public SpeechToTextService(GoogleCredentials credentials, GoogleChannelPools channelPools) throws IOException {
+    this.rpcDeadlineMillis = channelPools.getConfig().getRpcDeadlineMillis();
+    this.channelPool = channelPools.pool(SpeechSettings.getDefaultEndpoint());
+    SpeechSettings speechSettings = SpeechSettings.newBuilder()
+        //
+        .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+        //
+        .setTransportChannelProvider(channelPools.channelProvider(channelPool.getEndpoint())).build();
+    speechClient = SpeechClient.create(speechSettings);
+  }
+
+  // Connects the channel (DNS, TLS) without a billed call, so the first Start click does not pay for it.
+  // Best effort: a failure here is logged, the first real call reports it.
+  public void warmUp() {
+    long start = System.currentTimeMillis();
+    try {
+      if (channelPool != null && !channelPool.awaitReady(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("STT channel not ready after " + WARM_UP_TIMEOUT_SECONDS + " s");
+      }
+    } catch (RuntimeException e) {
+      log.warn("STT warm-up failed: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.info("SpeechClient warmed up in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  // Sees the raw stream error, e.g. to detect RESOURCE_EXHAUSTED
+  public void setErrorListener(Consumer<Throwable> errorListener) {
+    this.errorListener = errorListener;
+  }
+
   public void startStreamingRecognize(Consumer<String> callback, BlockingQueue<byte[]> audioQueue) {
+    startStreamingRecognize(result -> callback.accept(result.getTranscript()), audioQueue, SessionProfile.builder().build());
+  }
+
+  // Results carry the language Speech detected when the profile lists alternative languages
+  public void startStreamingRecognize(Consumer<TranscriptResult> callback, BlockingQueue<byte[]> audioQueue, SessionProfile profile) {
     if (streaming) {
       log.warn("STT streaming already in progress.");
       return;
@@ -55,22 +115,35 @@ public class SpeechToTextService {
 
       @Override
       public void onResponse(StreamingRecognizeResponse response) {
+        if (response.getResultsCount() == 0) {
+          return; // e.g. END_OF_SINGLE_UTTERANCE events
+        }
         StreamingRecognitionResult result = response.getResultsList().get(0);
-        if (result != null && result.getIsFinal()) { // Only process final results
-          String transcript = result.getAlternativesList().get(0).getTranscript();
-          log.info("STT Result: " + transcript);
-          resultCallback.accept(transcript);
+        if (result != null && result.getIsFinal() && result.getAlternativesCount() > 0) { // Only process final results
+          SpeechRecognitionAlternative alternative = result.getAlternativesList().get(0);
+          String transcript = alternative.getTranscript();
+          String languageCode = result.getLanguageCode().isEmpty() ? profile.getSttLanguage() : result.getLanguageCode();
+          log.info("STT Result [" + languageCode + "]: " + transcript);
+          List<TimedWord> words = new ArrayList<>(alternative.getWordsCount());
+          for (WordInfo word : alternative.getWordsList()) {
+            words.add(new TimedWord(word.getWord(), millis(word.getStartTime()), millis(word.getEndTime())));
+          }
+          long endMillis = result.hasResultEndTime() ? millis(result.getResultEndTime()) : -1;
+          resultCallback.accept(new TranscriptResult(transcript, languageCode, true, false, words, endMillis));
         }
       }
 
       @Override
       public void onError(Throwable t) {
         log.error("STT stream error: " + t.getMessage(), t);
+        if (errorListener != null) {
+          errorListener.accept(t);
+        }
         streaming = false;
         stopStreamingRecognize();
         // Notify UI about error
         if (resultCallback != null) {
-          resultCallback.accept("ERROR: " + t.getMessage());
+          resultCallback.accept(TranscriptResult.error(t.getMessage()));
         }
       }
 
@@ -84,9 +157,7 @@ public class SpeechToTextService {
     clientStream = speechClient.streamingRecognizeCallable().splitCall(responseObserver);
 
     // Build the first request for configuration
-    RecognitionConfig recognitionConfig = RecognitionConfig.newBuilder().setEncoding(RecognitionConfig.AudioEncoding.LINEAR16).setSampleRateHertz(16000) // Must match AudioRecorder
-        .setLanguageCode("en-US") // Source language is English
-        .build();
+    RecognitionConfig recognitionConfig = recognitionConfig(profile);
 
     StreamingRecognitionConfig streamingRecognitionConfig = StreamingRecognitionConfig.newBuilder().setConfig(recognitionConfig).setInterimResults(false) // Only final results
         .setSingleUtterance(false) // Continuous recognition
@@ -117,6 +188,50 @@ public class SpeechToTextService {
     log.info("STT streaming started.");
   }
 
+  // Synchronous recognition of recorded audio, at most about a minute per call. Used by the batch mode.
+  public TranscriptResult recognize(byte[] pcm, int offset, int length, SessionProfile profile) {
+    RecognitionAudio audio = RecognitionAudio.newBuilder().setContent(ByteString.copyFrom(pcm, offset, length)).build();
+    RecognizeRequest request = RecognizeRequest.newBuilder().setConfig(recognitionConfig(profile)).setAudio(audio).build();
+    // recognition takes up to about the audio's length, so a stuck call cannot hold a batch worker forever
+    long audioMillis = length * 1000L / (profile.getSampleRate() * 2);
+    GrpcCallContext context = GrpcCallContext.createDefault().withTimeout(org.threeten.bp.Duration.ofMillis(rpcDeadlineMillis + audioMillis));
+    RecognizeResponse response = speechClient.recognizeCallable().call(request, context);
+    StringBuilder transcript = new StringBuilder();
+    String languageCode = null;
+    for (SpeechRecognitionResult result : response.getResultsList()) {
+      if (result.getAlternativesCount() > 0) {
+        if (languageCode == null && !result.getLanguageCode().isEmpty()) {
+          languageCode = result.getLanguageCode();
+        }
+        if (transcript.length() > 0) {
+          transcript.append(' ');
+        }
+        transcript.append(result.getAlternatives(0).getTranscript().trim());
+      }
+    }
+    return new TranscriptResult(transcript.toString(), languageCode == null ? profile.getSttLanguage() : languageCode, true, false);
+  }
+
+  private RecognitionConfig recognitionConfig(SessionProfile profile) {
+    RecognitionConfig.Builder builder = RecognitionConfig.newBuilder().setEncoding(RecognitionConfig.AudioEncoding.LINEAR16)
+        //
+        .setSampleRateHertz(profile.getSampleRate()) // Must match AudioRecorder
+        .setLanguageCode(profile.getSttLanguage()) // Source language, en-US by default
+        .setUseEnhanced(profile.isSttUseEnhanced())
+        //
+        .addAllAlternativeLanguageCodes(profile.alternativeLanguages())
+        // word offsets drive the caption timeline
+        .setEnableWordTimeOffsets(true);
+    if (profile.getSttModel() != null && !profile.getSttModel().isEmpty()) {
+      builder.setModel(profile.getSttModel());
+    }
+    return builder.build();
+  }
+
+  private static long millis(Duration duration) {
+    return duration.getSeconds() * 1000 + duration.getNanos() / 1_000_000;
+  }
+
   public void stopStreamingRecognize() {
     streaming = false;
     if (audioSenderThread != null) {
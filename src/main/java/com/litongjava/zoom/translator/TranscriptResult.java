@@ -0,0 +1,36 @@
+package com.litongjava.zoom.translator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.litongjava.zoom.translator.caption.TimedWord;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One recognition result with the language the recognizer picked for it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranscriptResult {
+  private String transcript;
+  // BCP-47 code as returned by Speech, e.g. "en-us" or "cmn-hans-cn"; the session language if not reported
+  private String languageCode;
+  private boolean isFinal;
+  private boolean error;
+  // word offsets from the start of the recognition stream, empty if Speech did not return them
+  private List<TimedWord> words = new ArrayList<>();
+  // stream offset where the result ends, -1 if unknown
+  private long endMillis = -1;
+
+  public TranscriptResult(String transcript, String languageCode, boolean isFinal, boolean error) {
+    this(transcript, languageCode, isFinal, error, new ArrayList<>(), -1);
+  }
+
+  public static TranscriptResult error(String message) {
+    return new TranscriptResult("ERROR: " + message, null, true, true);
+  }
+}
@@ -1,29 +1,82 @@
 package com.litongjava.zoom.translator;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.threeten.bp.Duration;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.grpc.GrpcCallContext;
+import com.google.api.gax.rpc.ApiCallContext;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials; // <-- 新增导入
+import com.google.cloud.translate.v3.GetSupportedLanguagesRequest;
 import com.google.cloud.translate.v3.LocationName;
 import com.google.cloud.translate.v3.TranslateTextRequest;
 import com.google.cloud.translate.v3.TranslateTextResponse;
 import com.google.cloud.translate.v3.TranslationServiceClient;
 import com.google.cloud.translate.v3.TranslationServiceSettings;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.litongjava.zoom.translator.grpc.ChannelPoolConfig;
+import com.litongjava.zoom.translator.grpc.ChannelPoolMetrics;
+import com.litongjava.zoom.translator.grpc.GoogleChannelPools;
+import com.litongjava.zoom.translator.quota.SessionQuota;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class TranslationService {
 
+  private static final int DEFAULT_CACHE_SIZE = 1000;
+
   private TranslationServiceClient client;
   private String projectId;
+  private ChannelPoolConfig poolConfig = ChannelPoolConfig.builder().hedgeDelayMillis(0).build();
+  private ChannelPoolMetrics metrics;
+  private int cacheSize = DEFAULT_CACHE_SIZE;
+  private volatile Map<String, String> cache = createCache(DEFAULT_CACHE_SIZE);
+  // fires hedged attempts; one daemon thread is plenty since it only issues async calls
+  private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "TranslationHedgeThread");
+    t.setDaemon(true);
+    return t;
+  });
 
   public TranslationService(GoogleCredentials credentials) throws IOException {
-    TranslationServiceSettings translationServiceSettings = TranslationServiceSettings.newBuilder().setCredentialsProvider(FixedCredentialsProvider.create(credentials)).build();
+    this(credentials, TranslationServiceSettings.newBuilder().setCredentialsProvider(FixedCredentialsProvider.create(credentials)).build(), null);
+  }
+
+  // Uses the process-wide channel pool, with per-call deadlines and hedged translateText calls
+  public TranslationService(GoogleCredentials credentials, GoogleChannelPools channelPools) throws IOException {
+    this(credentials, TranslationServiceSettings.newBuilder().setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+        //
+        .setTransportChannelProvider(channelPools.channelProvider(TranslationServiceSettings.getDefaultEndpoint())).build(), channelPools);
+  }
+
+  private TranslationService(GoogleCredentials credentials, TranslationServiceSettings translationServiceSettings, GoogleChannelPools channelPools) throws IOException {
     client = TranslationServiceClient.create(translationServiceSettings);
+    if (channelPools != null) {
+      this.poolConfig = channelPools.getConfig();
+      this.metrics = channelPools.metrics(TranslationServiceSettings.getDefaultEndpoint());
+    }
 
     // --- START MODIFICATION ---
     // 1. 尝试从 credentials.getQuotaProjectId() 获取
@@ -66,26 +119,180 @@ public class TranslationService {
     log.info("TranslationService initialized for project: " + projectId);
   }
 
+  // getSupportedLanguages is free and opens the channel before the first real translation
+  public void warmUp() {
+    long start = System.currentTimeMillis();
+    try {
+      GetSupportedLanguagesRequest request = GetSupportedLanguagesRequest.newBuilder().setParent(LocationName.of(projectId, "global").toString()).build();
+      client.getSupportedLanguagesCallable().call(request, callContext());
+    } catch (RuntimeException e) {
+      // best effort, the first real call reports the problem
+      log.warn("Translation warm-up failed: " + e.getMessage());
+    }
+    log.info("TranslationClient warmed up in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
   public String translate(String text, String sourceLanguage, String targetLanguage) throws IOException {
     if (text == null || text.trim().isEmpty()) {
       return "";
     }
+    return translateBatch(Collections.singletonList(text), sourceLanguage, targetLanguage).get(0);
+  }
+
+  // Translates all texts with one translateText call; cached phrases are not sent again
+  public List<String> translateBatch(List<String> texts, String sourceLanguage, String targetLanguage) throws IOException {
+    return translateBatch(texts, sourceLanguage, targetLanguage, null);
+  }
+
+  // Same, a hedged attempt is only sent when the session's quota admits it
+  public List<String> translateBatch(List<String> texts, String sourceLanguage, String targetLanguage, SessionQuota quota) throws IOException {
+    String[] results = new String[texts.size()];
+    List<Integer> missing = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      String text = texts.get(i);
+      if (text == null || text.trim().isEmpty()) {
+        results[i] = "";
+        continue;
+      }
+      String cached = cache.get(cacheKey(text, sourceLanguage, targetLanguage));
+      if (cached != null) {
+        results[i] = cached;
+      } else {
+        missing.add(i);
+      }
+    }
+    if (missing.isEmpty()) {
+      return Arrays.asList(results);
+    }
 
     LocationName parent = LocationName.of(projectId, "global");
 
-    TranslateTextRequest request = TranslateTextRequest.newBuilder().setParent(parent.toString()).setMimeType("text/plain").setSourceLanguageCode(sourceLanguage).setTargetLanguageCode(targetLanguage)
-        .addContents(text).build();
+    TranslateTextRequest.Builder builder = TranslateTextRequest.newBuilder().setParent(parent.toString()).setMimeType("text/plain").setSourceLanguageCode(sourceLanguage)
+        .setTargetLanguageCode(targetLanguage);
+    for (int i : missing) {
+      builder.addContents(texts.get(i));
+    }
+    TranslateTextRequest request = builder.build();
+
+    TranslateTextResponse response = call(request, quota);
+
+    for (int m = 0; m < missing.size(); m++) {
+      int i = missing.get(m);
+      String translatedText = m < response.getTranslationsCount() ? response.getTranslations(m).getTranslatedText() : "";
+      results[i] = translatedText;
+      cache.put(cacheKey(texts.get(i), sourceLanguage, targetLanguage), translatedText);
+      log.info("Translated '" + texts.get(i) + "' to '" + translatedText + "'");
+    }
+    return Arrays.asList(results);
+  }
+
+  // Resizes the phrase cache, 0 disables it. Cheap to call at every session start.
+  public void setCacheSize(int cacheSize) {
+    if (cacheSize == this.cacheSize) {
+      return;
+    }
+    this.cacheSize = cacheSize;
+    this.cache = createCache(cacheSize);
+  }
+
+  private static Map<String, String> createCache(int maxEntries) {
+    return Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  private static String cacheKey(String text, String sourceLanguage, String targetLanguage) {
+    return sourceLanguage + '|' + targetLanguage + '|' + text;
+  }
+
+  private ApiCallContext callContext() {
+    return GrpcCallContext.createDefault().withTimeout(Duration.ofMillis(poolConfig.getRpcDeadlineMillis()));
+  }
+
+  // Sends the request with a deadline. If it has not answered after hedgeDelayMillis a second attempt is
+  // sent and whichever answers first wins, which caps the tail latency of a single slow backend.
+  private TranslateTextResponse call(TranslateTextRequest request, SessionQuota quota) throws IOException {
+    ApiFuture<TranslateTextResponse> primary = client.translateTextCallable().futureCall(request, callContext());
+    if (poolConfig.getHedgeDelayMillis() <= 0) {
+      return await(primary);
+    }
+
+    CompletableFuture<TranslateTextResponse> winner = new CompletableFuture<>();
+    AtomicInteger started = new AtomicInteger(1);
+    AtomicInteger failures = new AtomicInteger();
+    complete(primary, winner, started, failures, false);
+    ScheduledFuture<?> hedgeTask = hedgeScheduler.schedule(() -> {
+      // the hedge is a second billed call, so it needs the session's quota too
+      if (winner.isDone() || quota != null && !quota.admitHedge(characters(request))) {
+        return;
+      }
+      started.incrementAndGet();
+      if (winner.isDone()) {
+        return;
+      }
+      if (metrics != null) {
+        metrics.hedgeSent();
+      }
+      ApiFuture<TranslateTextResponse> hedge = client.translateTextCallable().futureCall(request, callContext());
+      complete(hedge, winner, started, failures, true);
+      winner.whenComplete((r, e) -> hedge.cancel(true));
+    }, poolConfig.getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+    winner.whenComplete((r, e) -> {
+      hedgeTask.cancel(false);
+      primary.cancel(true);
+    });
+    return await(winner);
+  }
+
+  private static long characters(TranslateTextRequest request) {
+    long characters = 0;
+    for (String text : request.getContentsList()) {
+      characters += text.length();
+    }
+    return characters;
+  }
 
-    TranslateTextResponse response = client.translateText(request);
+  private void complete(ApiFuture<TranslateTextResponse> attempt, CompletableFuture<TranslateTextResponse> winner, AtomicInteger started, AtomicInteger failures,
+      boolean hedge) {
+    ApiFutures.addCallback(attempt, new ApiFutureCallback<TranslateTextResponse>() {
+      @Override
+      public void onSuccess(TranslateTextResponse response) {
+        if (winner.complete(response) && hedge && metrics != null) {
+          metrics.hedgeWon();
+        }
+      }
 
-    StringBuilder translatedText = new StringBuilder();
-    response.getTranslationsList().forEach(translation -> translatedText.append(translation.getTranslatedText()));
+      @Override
+      public void onFailure(Throwable t) {
+        // fail only when no other attempt is still in flight
+        if (failures.incrementAndGet() >= started.get()) {
+          winner.completeExceptionally(t);
+        }
+      }
+    }, MoreExecutors.directExecutor());
+  }
 
-    log.info("Translated '" + text + "' to '" + translatedText.toString() + "'");
-    return translatedText.toString();
+  private static TranslateTextResponse await(Future<TranslateTextResponse> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for translation", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
   }
 
   public void shutdown() {
+    hedgeScheduler.shutdownNow();
     if (client != null) {
       client.shutdown();
       try {
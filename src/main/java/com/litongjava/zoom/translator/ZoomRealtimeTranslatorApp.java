@@ -4,28 +4,55 @@ import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.Line;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.Mixer;
 import javax.sound.sampled.TargetDataLine;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.litongjava.zoom.translator.batch.BatchTranscriptionApp;
+import com.litongjava.zoom.translator.caption.CaptionTimeline;
+import com.litongjava.zoom.translator.caption.CaptureClock;
+import com.litongjava.zoom.translator.config.SessionProfile;
+import com.litongjava.zoom.translator.config.SessionProfileLoader;
+import com.litongjava.zoom.translator.device.AudioDevice;
+import com.litongjava.zoom.translator.device.AudioDeviceCatalog;
+import com.litongjava.zoom.translator.device.DeviceSelector;
+import com.litongjava.zoom.translator.dsp.AudioProcessingPipeline;
+import com.litongjava.zoom.translator.grpc.ChannelPoolConfig;
+import com.litongjava.zoom.translator.grpc.GoogleChannelPools;
+import com.litongjava.zoom.translator.language.LanguageRouter;
+import com.litongjava.zoom.translator.language.TranslationRoute;
+import com.litongjava.zoom.translator.quota.Priority;
+import com.litongjava.zoom.translator.quota.QuotaConfig;
+import com.litongjava.zoom.translator.quota.QuotaScheduler;
+import com.litongjava.zoom.translator.quota.SessionQuota;
+import com.litongjava.zoom.translator.tts.CommandLineSpeechSynthesizer;
+import com.litongjava.zoom.translator.tts.PlaybackScheduler;
+import com.litongjava.zoom.translator.tts.SynthesisCache;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,9 +60,37 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ZoomRealtimeTranslatorApp extends JFrame {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && "--batch".equals(args[0])) {
+      BatchTranscriptionApp.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    boolean exitAfterStartup = false;
+    for (String arg : args) {
+      // Used by the appcds profile: start, wait for services, exit so the JVM dumps the class archive
+      if ("--exit-after-startup".equals(arg)) {
+        exitAfterStartup = true;
+      }
+    }
+    final boolean exit = exitAfterStartup;
     SwingUtilities.invokeLater(() -> {
-      new ZoomRealtimeTranslatorApp().setVisible(true);
+      ZoomRealtimeTranslatorApp app;
+      try {
+        app = new ZoomRealtimeTranslatorApp();
+        app.setVisible(true);
+      } catch (RuntimeException e) {
+        if (!exit) {
+          throw e;
+        }
+        // e.g. HeadlessException; the training run must end instead of leaving the JVM idle
+        log.error("Startup failed: " + e.getMessage(), e);
+        System.exit(1);
+        return;
+      }
+      if (exit) {
+        // the classes are loaded either way, only a crash before this point fails the training run
+        app.servicesReady.whenComplete((v, e) -> System.exit(0));
+      }
     });
   }
 
@@ -43,19 +98,49 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
   private JTextArea translatedTextArea;
   private JButton startButton;
   private JButton stopButton;
+  private JLabel statusLabel;
+  private JProgressBar levelMeter;
+  private JLabel voiceLabel;
 
   private AudioRecorder audioRecorder;
   private SpeechToTextService speechToTextService;
   private TranslationService translationService;
 
-  // Queue to hold audio chunks for STT processing
-  private BlockingQueue<byte[]> audioQueue = new LinkedBlockingQueue<>();
+  // Queue to hold audio chunks for STT processing, type and capacity come from the session profile
+  private BlockingQueue<byte[]> audioQueue;
   // Queue to hold transcribed English text for translation
-  private BlockingQueue<String> originalTextQueue = new LinkedBlockingQueue<>();
+  private BlockingQueue<TranscriptResult> originalTextQueue = new LinkedBlockingQueue<>();
+  // Sentinel value to stop the translation thread
+  private static final TranscriptResult STOP_SIGNAL = new TranscriptResult("STOP_SIGNAL", null, true, false);
 
   private Thread audioProcessorThread;
   private Thread translationProcessorThread;
 
+  private static final long DEVICE_SCAN_TIMEOUT_SECONDS = 10;
+
+  // Session settings, reloaded when the profile file changes and applied on the next Start
+  private final SessionProfileLoader profileLoader = new SessionProfileLoader();
+  // profile the current audio recorder was built with
+  private SessionProfile recorderProfile;
+  private ExecutorService translationExecutor;
+  // reads translations aloud when ttsEnabled, null otherwise
+  private PlaybackScheduler speechPlayback;
+  // live subtitle files when captionDirectory is set, null otherwise
+  private CaptionTimeline captionTimeline;
+
+  private final AudioDeviceCatalog deviceCatalog = new AudioDeviceCatalog(profileLoader.current().captureFormat());
+  private volatile DeviceSelector deviceSelector = createDeviceSelector(profileLoader.current());
+  private volatile String selectedDeviceName;
+  private volatile boolean deviceChanged;
+
+  // One pool per Google endpoint, shared by both services and every session of this window
+  private final GoogleChannelPools channelPools = new GoogleChannelPools(ChannelPoolConfig.fromSystemProperties());
+  // admission control for every session of this process
+  private final QuotaScheduler quotaScheduler = new QuotaScheduler(QuotaConfig.fromSystemProperties());
+
+  // Completes once credentials, cloud clients and the audio line are ready
+  private CompletableFuture<Void> servicesReady;
+
   public ZoomRealtimeTranslatorApp() {
     super("Zoom Realtime Translator");
     initComponents();
@@ -74,7 +159,7 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
     originalTextArea.setLineWrap(true);
     originalTextArea.setWrapStyleWord(true);
     JScrollPane originalScrollPane = new JScrollPane(originalTextArea);
-    originalScrollPane.setBorder(BorderFactory.createTitledBorder("Original English Text"));
+    originalScrollPane.setBorder(BorderFactory.createTitledBorder("Original"));
     mainPanel.add(originalScrollPane);
 
     translatedTextArea = new JTextArea();
@@ -82,7 +167,7 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
     translatedTextArea.setLineWrap(true);
     translatedTextArea.setWrapStyleWord(true);
     JScrollPane translatedScrollPane = new JScrollPane(translatedTextArea);
-    translatedScrollPane.setBorder(BorderFactory.createTitledBorder("Translated Chinese Text"));
+    translatedScrollPane.setBorder(BorderFactory.createTitledBorder("Translation"));
     mainPanel.add(translatedScrollPane);
 
     add(mainPanel, BorderLayout.CENTER);
@@ -90,10 +175,20 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
     JPanel controlPanel = new JPanel();
     startButton = new JButton("Start Translation");
     stopButton = new JButton("Stop Translation");
+    startButton.setEnabled(false); // Enabled once services are ready
     stopButton.setEnabled(false); // Disable initially
+    statusLabel = new JLabel("Initializing services...");
+
+    // Input level in dBFS (-60..0) and VAD state, fed by the audio processing pipeline
+    levelMeter = new JProgressBar(-60, 0);
+    levelMeter.setValue(-60);
+    voiceLabel = new JLabel("Silence");
 
     controlPanel.add(startButton);
     controlPanel.add(stopButton);
+    controlPanel.add(levelMeter);
+    controlPanel.add(voiceLabel);
+    controlPanel.add(statusLabel);
     add(controlPanel, BorderLayout.SOUTH);
 
     startButton.addActionListener(new ActionListener() {
@@ -111,121 +206,264 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
     });
   }
 
+  // Runs off the EDT so the window shows immediately. Credentials, the two cloud clients and the
+  // audio line are created in parallel; the channels are warmed up before Start is enabled.
   private void setupServices() {
-    try {
-      // --- START MODIFICATION ---
-      // 从 resources 目录加载 Google Cloud 凭据文件
-      InputStream credentialsStream = getClass().getClassLoader().getResourceAsStream("google/gen-lang-client-key.json");
-      if (credentialsStream == null) {
-        throw new IOException(
-            "Google Cloud credentials file 'gen-lang-client-key.json' not found in src/main/resources/google. " + "Please ensure it's named 'key.json' and placed directly under src/main/resources.");
+    long start = System.currentTimeMillis();
+    ExecutorService startupExecutor = Executors.newFixedThreadPool(3, r -> {
+      Thread t = new Thread(r, "ServiceStartupThread");
+      t.setDaemon(true);
+      return t;
+    });
+
+    CompletableFuture<GoogleCredentials> credentialsFuture = CompletableFuture.supplyAsync(() -> {
+      try {
+        return CredentialsLoader.load();
+      } catch (IOException e) {
+        throw new CompletionException(e);
       }
-      GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream);
-      credentialsStream.close(); // 加载后关闭流
-
-      speechToTextService = new SpeechToTextService(credentials); // 传递凭据
-      translationService = new TranslationService(credentials); // 传递凭据
-      // --- END MODIFICATION ---
-
-      // Important: Select the correct audio input line here.
-      TargetDataLine inputLine = getAudioInputLine();
-      audioRecorder = new AudioRecorder(inputLine, audioQueue);
-    } catch (IOException | LineUnavailableException e) {
-      log.error("Failed to initialize services:{}" + e.getMessage(), e);
-      JOptionPane.showMessageDialog(this, "Failed to initialize audio or cloud services: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-      startButton.setEnabled(false);
-    }
-  }
+    }, startupExecutor);
 
-  // Helper to find the correct audio input line (e.g., Stereo Mix)
-  private TargetDataLine getAudioInputLine() throws LineUnavailableException {
-    // Define desired format
-    AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 16000, 16, 1, 2, 16000, false);
-    DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+    CompletableFuture<Void> speechFuture = credentialsFuture.thenAcceptAsync(credentials -> {
+      try {
+        speechToTextService = new SpeechToTextService(credentials, channelPools); // 传递凭据
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+      speechToTextService.warmUp();
+    }, startupExecutor);
 
-    if (!AudioSystem.isLineSupported(info)) {
-      log.error("Line for audio format not supported: " + format);
-      throw new LineUnavailableException("Audio format not supported.");
-    }
+    CompletableFuture<Void> translationFuture = credentialsFuture.thenAcceptAsync(credentials -> {
+      try {
+        translationService = new TranslationService(credentials, channelPools); // 传递凭据
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+      translationService.warmUp();
+    }, startupExecutor);
 
-    // Try to find a specific mixer/line for system audio capture
-    Mixer.Info[] mixerInfo = AudioSystem.getMixerInfo();
-    log.info("Available audio mixers:");
-    for (Mixer.Info mInfo : mixerInfo) {
-      Mixer mixer = AudioSystem.getMixer(mInfo);
-      log.info("  Mixer Name: " + mInfo.getName() + ", Description: " + mInfo.getDescription());
-      Line.Info[] targetLineInfos = mixer.getTargetLineInfo(); // TargetDataLine is a TargetLine
-      for (Line.Info lineInfo : targetLineInfos) {
-        log.info("    Line Type: " + lineInfo.getLineClass().getName() + ", Line Info: " + lineInfo.toString());
-        if (lineInfo instanceof DataLine.Info) {
-          DataLine.Info dataLineInfo = (DataLine.Info) lineInfo;
-          for (AudioFormat af : dataLineInfo.getFormats()) {
-            log.info("      Supported Format: " + af);
-            if (af.equals(format)) {
-              // On Windows, look for "Stereo Mix" or similar
-              // On macOS with BlackHole, it might be named "BlackHole 2ch"
-              if (mInfo.getName().contains("Stereo Mix") || mInfo.getName().contains("BlackHole")) {
-                log.info("Found suitable mixer and line: " + mInfo.getName());
-                return (TargetDataLine) mixer.getLine(info);
-              }
-            }
-          }
-        }
+    profileLoader.addListener(profile -> {
+      deviceSelector = createDeviceSelector(profile);
+      onDevicesChanged(deviceCatalog.getDevices());
+      SwingUtilities.invokeLater(() -> statusLabel.setText("Profile '" + profile.getName() + "' reloaded, applies on next Start"));
+    });
+    profileLoader.startWatching();
+
+    deviceCatalog.addListener(this::onDevicesChanged);
+    deviceCatalog.start();
+    CompletableFuture<Void> audioFuture = CompletableFuture.runAsync(() -> {
+      try {
+        // Important: Select the correct audio input line here.
+        createAudioRecorder(profileLoader.current());
+      } catch (LineUnavailableException e) {
+        throw new CompletionException(e);
       }
-    }
+    }, startupExecutor);
+
+    servicesReady = CompletableFuture.allOf(speechFuture, translationFuture, audioFuture);
+    servicesReady.whenComplete((v, error) -> {
+      startupExecutor.shutdown();
+      SwingUtilities.invokeLater(() -> {
+        if (error == null) {
+          log.info("Services ready in " + (System.currentTimeMillis() - start) + " ms");
+          statusLabel.setText("Ready");
+          startButton.setEnabled(true);
+        } else {
+          Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+          log.error("Failed to initialize services:{}" + cause.getMessage(), cause);
+          statusLabel.setText("Initialization failed");
+          JOptionPane.showMessageDialog(this, "Failed to initialize audio or cloud services: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+      });
+    });
+  }
+
+  private void createAudioRecorder(SessionProfile profile) throws LineUnavailableException {
+    BlockingQueue<byte[]> queue = profile.getAudioQueueCapacity() > 0 ? new ArrayBlockingQueue<>(profile.getAudioQueueCapacity()) : new LinkedBlockingQueue<>();
+    // selected once, so the recorded name is the device the line was opened on
+    AudioDevice selected = deviceCatalog.select(deviceSelector, profile.captureFormat(), DEVICE_SCAN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    AudioRecorder recorder = new AudioRecorder(getAudioInputLine(selected, profile), queue, profile.captureFormat(), profile.chunkBytes());
+    recorder.setProcessingPipeline(createProcessingPipeline(profile));
+    selectedDeviceName = selected == null ? null : selected.getName();
+    audioQueue = queue;
+    audioRecorder = recorder;
+    recorderProfile = profile;
+  }
+
+  private static DeviceSelector createDeviceSelector(SessionProfile profile) {
+    return new DeviceSelector(profile.getDevicePattern(), profile.isDeviceRequireCapture());
+  }
 
-    // Fallback to default if specific line not found (might capture mic)
-    log.warn("Could not find a specific system audio input line (e.g., Stereo Mix/BlackHole). Attempting to use default.");
-    return (TargetDataLine) AudioSystem.getLine(info);
+  // Noise suppression and AGC are enabled per profile
+  private AudioProcessingPipeline createProcessingPipeline(SessionProfile profile) {
+    AudioProcessingPipeline pipeline = new AudioProcessingPipeline(profile.getSampleRate(), profile.isNoiseSuppression(), profile.isAgc());
+    pipeline.addListener(features -> {
+      int level = Math.max(-60, Math.round(features.getRmsDbfs()));
+      boolean speech = features.isSpeech();
+      boolean clipping = features.getClippedSamples() > 0;
+      SwingUtilities.invokeLater(() -> {
+        levelMeter.setValue(level);
+        voiceLabel.setText(clipping ? "Clipping" : speech ? "Speech" : "Silence");
+      });
+    });
+    return pipeline;
+  }
+
+  // Opens a line on the configured capture device (e.g., Stereo Mix / BlackHole)
+  private TargetDataLine getAudioInputLine(AudioDevice selected, SessionProfile profile) throws LineUnavailableException {
+    return deviceCatalog.openLine(selected, profile.captureFormat());
+  }
+
+  // Hot-plug: re-open the line on the next Start if the selected device appeared or went away
+  private void onDevicesChanged(List<AudioDevice> devices) {
+    AudioDevice selected = deviceSelector.select(devices);
+    String name = selected == null ? null : selected.getName();
+    if (!Objects.equals(name, selectedDeviceName)) {
+      log.info("Selected audio device changed from " + selectedDeviceName + " to " + name);
+      selectedDeviceName = name;
+      deviceChanged = true;
+    }
   }
 
   private void startTranslation() {
     startButton.setEnabled(false);
-    stopButton.setEnabled(true);
     originalTextArea.setText("");
     translatedTextArea.setText("");
+
+    SessionProfile profile = profileLoader.current();
+    if (!deviceChanged && profile == recorderProfile && audioRecorder.isLineOpen()) {
+      startSession(profile);
+      return;
+    }
+    // Opening the line may wait for a device scan, keep it off the EDT
+    statusLabel.setText("Opening audio device...");
+    AudioRecorder previous = audioRecorder;
+    CompletableFuture.runAsync(() -> {
+      previous.stopRecording(); // releases the line on the old device
+      try {
+        createAudioRecorder(profile);
+      } catch (LineUnavailableException e) {
+        throw new CompletionException(e);
+      }
+    }).whenComplete((v, error) -> SwingUtilities.invokeLater(() -> {
+      if (error == null) {
+        deviceChanged = false;
+        statusLabel.setText("Ready");
+        startSession(profile);
+        return;
+      }
+      // IllegalArgumentException when the line does not accept the profile's format
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      log.error("Failed to open audio device: " + cause.getMessage(), cause);
+      statusLabel.setText("Audio device unavailable");
+      JOptionPane.showMessageDialog(this, "Failed to open audio device: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+      startButton.setEnabled(true);
+    }));
+  }
+
+  private void startSession(SessionProfile profile) {
+    stopButton.setEnabled(true);
     audioQueue.clear();
     originalTextQueue.clear();
+    translationService.setCacheSize(profile.getTranslationCacheSize());
+    log.info("Starting session with profile: " + profile);
+
+    SessionQuota sessionQuota = quotaScheduler.session(profile.getName(), Priority.forName(profile.getSessionPriority()), profile.lowPriorityLanguages());
+    audioRecorder.setAudioGate(sessionQuota::admitAudio);
+    speechToTextService.setErrorListener(sessionQuota::reportError);
 
     // Start audio recording in a separate thread
     audioRecorder.startRecording();
     log.info("Audio recording started.");
+    captionTimeline = profile.getCaptionDirectory().isEmpty() ? null : openCaptionTimeline(profile);
+    CaptionTimeline captions = captionTimeline;
+
+    LanguageRouter languageRouter = new LanguageRouter(profile);
+    speechPlayback = profile.isTtsEnabled() ? startSpeechPlayback(profile) : null;
+    PlaybackScheduler playback = speechPlayback;
+    CaptureClock clock = audioRecorder.getCaptureClock();
+    boolean multilingual = !profile.alternativeLanguages().isEmpty();
 
     // Start thread to send audio to STT service
     audioProcessorThread = new Thread(() -> {
       speechToTextService.startStreamingRecognize(result -> {
         // This callback is invoked when STT returns a result
-        if (result != null && !result.isEmpty()) {
+        String text = result.getTranscript();
+        if (text != null && !text.isEmpty()) {
+          if (captions != null && !result.isError()) {
+            captions.addTranscript(result);
+          }
+          // Tag each line with the detected language when more than one language is expected
+          String line = multilingual && !result.isError() ? "[" + LanguageRouter.baseLanguage(result.getLanguageCode()) + "] " + text : text;
           SwingUtilities.invokeLater(() -> {
-            originalTextArea.append(result + "\n");
-            originalTextQueue.offer(result); // Add to translation queue
+            originalTextArea.append(line + "\n");
+            if (!result.isError()) {
+              originalTextQueue.offer(result); // Add to translation queue
+            }
           });
         }
-      }, audioQueue // Pass the queue to STT service
-      );
+      }, audioQueue, // Pass the queue to STT service
+          profile);
     });
     audioProcessorThread.start();
     log.info("Speech-to-Text processor thread started.");
 
-    // Start thread to send English text to translation service
+    // Start thread to send recognized text to translation service. Utterances are grouped into batches of up to
+    // translationBatchSize and translated on maxConcurrentTranslations workers; results are appended in order.
+    translationExecutor = Executors.newFixedThreadPool(profile.getMaxConcurrentTranslations(), r -> {
+      Thread t = new Thread(r, "TranslationWorkerThread");
+      t.setDaemon(true);
+      return t;
+    });
+    ExecutorService executor = translationExecutor;
     translationProcessorThread = new Thread(() -> {
+      CompletableFuture<Void> appended = CompletableFuture.completedFuture(null);
+      boolean stop = false;
       try {
-        while (!Thread.currentThread().isInterrupted()) {
-          String originalText = originalTextQueue.take(); // Blocks until text is available
-          if (originalText.equals("STOP_SIGNAL")) { // Sentinel value to stop thread
+        while (!stop && !Thread.currentThread().isInterrupted()) {
+          TranscriptResult originalText = originalTextQueue.take(); // Blocks until text is available
+          if (originalText == STOP_SIGNAL) {
             break;
           }
-          String translatedText = translationService.translate(originalText, "en", "zh-CN"); // English to Simplified Chinese
-          SwingUtilities.invokeLater(() -> {
-            translatedTextArea.append(translatedText + "\n");
+          List<TranscriptResult> batch = new ArrayList<>();
+          batch.add(originalText);
+          // under quota pressure batches get wider, see SessionQuota
+          long batchDeadline = System.currentTimeMillis() + sessionQuota.translationBatchDelayMillis(profile.getTranslationBatchDelayMillis());
+          int batchSize = sessionQuota.translationBatchSize(profile.getTranslationBatchSize());
+          while (batch.size() < batchSize) {
+            TranscriptResult next = originalTextQueue.poll(Math.max(0, batchDeadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (next == null) {
+              break;
+            }
+            if (next == STOP_SIGNAL) {
+              stop = true;
+              break;
+            }
+            batch.add(next);
+          }
+
+          // language each result is in, so passed-through text is not read by the target language's voice
+          List<String> spokenLanguages = new ArrayList<>();
+          CompletableFuture<List<String>> translated = CompletableFuture.supplyAsync(() -> translateBatch(batch, languageRouter, sessionQuota, profile, spokenLanguages),
+              executor);
+          appended = appended.thenCombine(translated, (v, results) -> {
+            SwingUtilities.invokeLater(() -> {
+              for (int i = 0; i < results.size(); i++) {
+                translatedTextArea.append(results.get(i) + "\n");
+                if (captions != null) {
+                  captions.addTranslation(batch.get(i), results.get(i));
+                }
+                if (playback != null) {
+                  playback.speak(results.get(i), spokenLanguages.get(i), spokenAt(batch.get(i), clock));
+                }
+              }
+            });
+            return null;
           });
         }
       } catch (InterruptedException e) {
         log.info("Translation processor thread interrupted.");
         Thread.currentThread().interrupt();
-      } catch (IOException e) {
-        log.error("Translation failed: " + e.getMessage(), e);
-        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Translation Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
       } finally {
         log.info("Translation processor thread stopped.");
       }
@@ -234,6 +472,104 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
     log.info("Translation processor thread started.");
   }
 
+  private PlaybackScheduler startSpeechPlayback(SessionProfile profile) {
+    CommandLineSpeechSynthesizer synthesizer = new CommandLineSpeechSynthesizer(CommandLineSpeechSynthesizer.Engine.forName(profile.getTtsEngine()),
+        profile.getTtsVoice());
+    File cacheDir = new File(System.getProperty("user.home"), ".zoom-translator/tts-cache");
+    long cacheBytes = profile.getTtsCacheMegabytes() * 1024L * 1024L;
+    SynthesisCache cache = new SynthesisCache(cacheDir, cacheBytes, cacheBytes);
+    PlaybackScheduler playback = new PlaybackScheduler(synthesizer, cache, profile.getTtsMaxLatencyMillis(), profile.getTtsMaxSpeed());
+    try {
+      playback.start();
+      log.info("Speech output started with " + synthesizer.id());
+      return playback;
+    } catch (LineUnavailableException e) {
+      // captions still work without a speaker
+      log.error("Failed to open audio output, speech disabled: " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private CaptionTimeline openCaptionTimeline(SessionProfile profile) {
+    try {
+      return CaptionTimeline.open(new File(profile.getCaptionDirectory()), profile, audioRecorder.getCaptureClock());
+    } catch (IOException e) {
+      log.error("Failed to open caption files, captions disabled: " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  // Wall clock time the utterance ended on the capture clock, so speech lag includes STT and translation
+  private static long spokenAt(TranscriptResult original, CaptureClock clock) {
+    if (original.getEndMillis() < 0) {
+      return System.currentTimeMillis();
+    }
+    return Math.min(System.currentTimeMillis(), clock.getStartEpochMillis() + clock.toCaptureMillis(original.getEndMillis()));
+  }
+
+  // Consecutive utterances with the same route share one translateText call; text already in its target
+  // language is passed through without a call. spokenLanguages gets the language of every result: the
+  // route's target, or the detected language for text passed through untranslated.
+  private List<String> translateBatch(List<TranscriptResult> batch, LanguageRouter languageRouter, SessionQuota sessionQuota, SessionProfile profile,
+      List<String> spokenLanguages) {
+    List<String> results = new ArrayList<>(batch.size());
+    try {
+      int i = 0;
+      while (i < batch.size()) {
+        TranslationRoute route = route(batch.get(i), languageRouter, sessionQuota);
+        List<String> texts = new ArrayList<>();
+        texts.add(batch.get(i).getTranscript());
+        int j = i + 1;
+        while (j < batch.size() && Objects.equals(route, route(batch.get(j), languageRouter, sessionQuota))) {
+          texts.add(batch.get(j).getTranscript());
+          j++;
+        }
+        if (route == null || !acquireTranslationQuota(texts, sessionQuota)) {
+          // over quota the original is shown rather than holding up the captions
+          results.addAll(texts);
+          for (int k = i; k < j; k++) {
+            String detected = batch.get(k).getLanguageCode();
+            spokenLanguages.add(detected == null ? profile.getSttLanguage() : detected);
+          }
+        } else {
+          results.addAll(translationService.translateBatch(texts, route.getSourceLanguage(), route.getTargetLanguage(), sessionQuota));
+          for (int k = i; k < j; k++) {
+            spokenLanguages.add(route.getTargetLanguage());
+          }
+        }
+        i = j;
+      }
+      return results;
+    } catch (IOException | RuntimeException e) {
+      sessionQuota.reportError(e);
+      log.error("Translation failed: " + e.getMessage(), e);
+      SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Translation Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+      return results;
+    }
+  }
+
+  // null when the text stays as it is: already in the target language, or its language is paused
+  private static TranslationRoute route(TranscriptResult original, LanguageRouter languageRouter, SessionQuota sessionQuota) {
+    return sessionQuota.isPaused(original.getLanguageCode()) ? null : languageRouter.route(original.getLanguageCode());
+  }
+
+  private boolean acquireTranslationQuota(List<String> texts, SessionQuota sessionQuota) {
+    long characters = 0;
+    for (String text : texts) {
+      characters += text.length();
+    }
+    long wait = quotaScheduler.getConfig().getTranslationWaitMillis();
+    try {
+      if (sessionQuota.acquireTranslation(characters, wait)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.warn("Translation quota exhausted, showing " + texts.size() + " utterances untranslated.");
+    return false;
+  }
+
   private void stopTranslation() {
     startButton.setEnabled(true);
     stopButton.setEnabled(false);
@@ -249,7 +585,7 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
 
     // Send stop signal to translation thread and interrupt it
     if (translationProcessorThread != null && translationProcessorThread.isAlive()) {
-      originalTextQueue.offer("STOP_SIGNAL"); // Sentinel value
+      originalTextQueue.offer(STOP_SIGNAL); // Sentinel value
       translationProcessorThread.interrupt();
       try {
         translationProcessorThread.join(5000); // Wait for thread to finish gracefully
@@ -258,6 +594,9 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
         Thread.currentThread().interrupt();
       }
     }
+    if (translationExecutor != null) {
+      translationExecutor.shutdown(); // lets batches already sent finish
+    }
     if (audioProcessorThread != null && audioProcessorThread.isAlive()) {
       // The STT thread will stop when audioRecorder stops feeding the queue
       audioProcessorThread.interrupt(); // Interrupt directly if it's blocked on network
@@ -268,6 +607,20 @@ public class ZoomRealtimeTranslatorApp extends JFrame {
         Thread.currentThread().interrupt();
       }
     }
+    if (speechPlayback != null) {
+      speechPlayback.stop();
+      speechPlayback = null;
+    }
+    if (captionTimeline != null) {
+      try {
+        captionTimeline.close();
+      } catch (IOException e) {
+        log.warn("Failed to close caption files: " + e.getMessage());
+      }
+      captionTimeline = null;
+    }
+    channelPools.logMetrics();
+    quotaScheduler.logMetrics();
     log.info("Translation stopped.");
   }
 
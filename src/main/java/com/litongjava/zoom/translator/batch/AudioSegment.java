@@ -0,0 +1,17 @@
+package com.litongjava.zoom.translator.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A speech region of a decoded recording, as a byte range of its PCM buffer.
+ */
+@Data
+@AllArgsConstructor
+public class AudioSegment {
+  private int index;
+  private long startMillis;
+  private long endMillis;
+  private int byteOffset;
+  private int byteLength;
+}
@@ -0,0 +1,125 @@
+package com.litongjava.zoom.translator.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.litongjava.zoom.translator.TranscriptResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only progress log of one recording. Every finished transcription ("T") and translation ("X") is
+ * written as one tab separated line and flushed, so a killed job loses at most the RPCs in flight. A torn
+ * last line is ignored on load.
+ */
+@Slf4j
+public class BatchCheckpoint implements AutoCloseable {
+
+  private final File file;
+  private final Map<Integer, SegmentResult> results = new TreeMap<>();
+  private Writer writer;
+
+  public BatchCheckpoint(File file) throws IOException {
+    this.file = file;
+    if (file.isFile()) {
+      load();
+    }
+    writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+  }
+
+  public synchronized SegmentResult get(int index) {
+    return results.get(index);
+  }
+
+  public synchronized int size() {
+    return results.size();
+  }
+
+  public synchronized void transcribed(AudioSegment segment, TranscriptResult transcript) throws IOException {
+    results.put(segment.getIndex(),
+        new SegmentResult(segment.getIndex(), segment.getStartMillis(), segment.getEndMillis(), transcript.getTranscript(), transcript.getLanguageCode(), null));
+    append("T\t" + segment.getIndex() + "\t" + segment.getStartMillis() + "\t" + segment.getEndMillis() + "\t" + escape(transcript.getTranscript()) + "\t"
+        + transcript.getLanguageCode());
+  }
+
+  public synchronized void translated(int index, String translation) throws IOException {
+    SegmentResult result = results.get(index);
+    if (result != null) {
+      result.setTranslation(translation);
+      append("X\t" + index + "\t" + escape(translation));
+    }
+  }
+
+  private void append(String line) throws IOException {
+    writer.write(line);
+    writer.write('\n');
+    writer.flush();
+  }
+
+  private void load() throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split("\t", -1);
+        try {
+          if ("T".equals(parts[0]) && (parts.length == 5 || parts.length == 6)) {
+            int index = Integer.parseInt(parts[1]);
+            // checkpoints written before language detection have no language column
+            String languageCode = parts.length == 6 ? parts[5] : null;
+            results.put(index, new SegmentResult(index, Long.parseLong(parts[2]), Long.parseLong(parts[3]), unescape(parts[4]), languageCode, null));
+          } else if ("X".equals(parts[0]) && parts.length == 3) {
+            SegmentResult result = results.get(Integer.parseInt(parts[1]));
+            if (result != null) {
+              result.setTranslation(unescape(parts[2]));
+            }
+          }
+        } catch (NumberFormatException e) {
+          log.warn("Skipping corrupt checkpoint line in " + file + ": " + line);
+        }
+      }
+    }
+    log.info("Resuming from " + file + " with " + results.size() + " transcribed segments.");
+  }
+
+  public void delete() throws IOException {
+    close();
+    if (!file.delete()) {
+      log.warn("Could not delete checkpoint " + file);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  private static String escape(String text) {
+    return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+  private static String unescape(String text) {
+    StringBuilder sb = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\' && i + 1 < text.length()) {
+        char next = text.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
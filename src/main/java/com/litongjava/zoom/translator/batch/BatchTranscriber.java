@@ -0,0 +1,272 @@
+package com.litongjava.zoom.translator.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.litongjava.zoom.translator.SpeechToTextService;
+import com.litongjava.zoom.translator.TranscriptResult;
+import com.litongjava.zoom.translator.TranslationService;
+import com.litongjava.zoom.translator.config.SessionProfile;
+import com.litongjava.zoom.translator.language.LanguageRouter;
+import com.litongjava.zoom.translator.language.TranslationRoute;
+import com.litongjava.zoom.translator.quota.Priority;
+import com.litongjava.zoom.translator.quota.QuotaResource;
+import com.litongjava.zoom.translator.quota.QuotaScheduler;
+import com.litongjava.zoom.translator.quota.SessionQuota;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Captions one recording: decode, split at silences, transcribe the segments in parallel, translate the
+ * transcripts in batches and write them ordered by timestamp.
+ * <p>
+ * The worker pool is shared by all recordings of a job and bounds CPU use; {@code rpcPermits} bounds the
+ * number of Speech/Translation calls in flight independently of it. Each recording is a background session
+ * of the {@link QuotaScheduler}, so a job waits for quota instead of starving live sessions. Progress goes to a {@link BatchCheckpoint}
+ * next to the output, so a rerun only sends what is still missing.
+ */
+@Slf4j
+public class BatchTranscriber {
+
+  private final SpeechToTextService speechToTextService;
+  private final TranslationService translationService;
+  private final SessionProfile profile;
+  private final ExecutorService workers;
+  private final Semaphore rpcPermits;
+  private final QuotaScheduler quotaScheduler;
+  private final int translationBatchSize;
+  private final LanguageRouter languageRouter;
+  private final SilenceSplitter splitter = new SilenceSplitter();
+  private final AtomicLong audioMillis = new AtomicLong();
+
+  public BatchTranscriber(SpeechToTextService speechToTextService, TranslationService translationService, SessionProfile profile, ExecutorService workers,
+      int maxConcurrentRpcs, int translationBatchSize, QuotaScheduler quotaScheduler) {
+    this.speechToTextService = speechToTextService;
+    this.translationService = translationService;
+    this.profile = profile;
+    this.workers = workers;
+    this.rpcPermits = new Semaphore(maxConcurrentRpcs);
+    this.translationBatchSize = translationBatchSize;
+    this.quotaScheduler = quotaScheduler;
+    this.languageRouter = new LanguageRouter(profile);
+  }
+
+  // Total duration of the audio processed so far, for throughput reporting
+  public long getAudioMillis() {
+    return audioMillis.get();
+  }
+
+  public static File outputFile(File recording, File outputDir) {
+    return new File(outputDir, baseName(recording) + ".txt");
+  }
+
+  // Returns false when some segment failed; the checkpoint is kept so a rerun can finish it
+  public boolean process(File recording, File outputDir) throws IOException, InterruptedException {
+    File output = outputFile(recording, outputDir);
+    if (output.isFile()) {
+      log.info("Skipping " + recording + ", " + output + " already exists.");
+      return true;
+    }
+    long start = System.currentTimeMillis();
+    byte[] pcm = decode(recording, profile.captureFormat());
+    List<AudioSegment> segments = splitter.split(pcm, profile.getSampleRate());
+    long durationMillis = (long) pcm.length * 1000 / (profile.getSampleRate() * 2);
+    log.info(recording.getName() + ": " + (durationMillis / 1000) + " s of audio, " + segments.size() + " speech segments.");
+
+    SessionQuota quota = quotaScheduler.session(recording.getName(), Priority.BACKGROUND, profile.lowPriorityLanguages());
+    try (BatchCheckpoint checkpoint = new BatchCheckpoint(new File(outputDir, baseName(recording) + ".checkpoint"))) {
+      int failures = transcribe(recording, pcm, segments, checkpoint, quota);
+      failures += translate(recording, segments, checkpoint, quota);
+      if (failures > 0) {
+        log.error(recording.getName() + ": " + failures + " requests failed, rerun the job to resume.");
+        return false;
+      }
+      write(output, segments, checkpoint);
+      checkpoint.delete();
+    }
+    audioMillis.addAndGet(durationMillis);
+    log.info(recording.getName() + " done in " + (System.currentTimeMillis() - start) + " ms -> " + output);
+    return true;
+  }
+
+  private int transcribe(File recording, byte[] pcm, List<AudioSegment> segments, BatchCheckpoint checkpoint, SessionQuota quota) throws InterruptedException {
+    List<Future<?>> futures = new ArrayList<>();
+    for (AudioSegment segment : segments) {
+      if (checkpoint.get(segment.getIndex()) != null) {
+        continue;
+      }
+      futures.add(workers.submit(() -> {
+        TranscriptResult transcript = rpc(quota, () -> quota.acquire(QuotaResource.SPEECH_AUDIO, segment.getEndMillis() - segment.getStartMillis(), Long.MAX_VALUE),
+            () -> speechToTextService.recognize(pcm, segment.getByteOffset(), segment.getByteLength(), profile));
+        checkpoint.transcribed(segment, transcript);
+        return null;
+      }));
+    }
+    return await(recording, futures, "Transcription");
+  }
+
+  private int translate(File recording, List<AudioSegment> segments, BatchCheckpoint checkpoint, SessionQuota quota) throws InterruptedException, IOException {
+    // one batch per route, so every translateText call has a single language pair
+    Map<TranslationRoute, List<SegmentResult>> batches = new HashMap<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (AudioSegment segment : segments) {
+      SegmentResult result = checkpoint.get(segment.getIndex());
+      if (result == null || result.getTranslation() != null) {
+        continue;
+      }
+      TranslationRoute route = languageRouter.route(result.getLanguageCode());
+      if (result.getTranscript().isEmpty() || route == null) {
+        // nothing to say, or already in the target language
+        checkpoint.translated(result.getIndex(), route == null ? result.getTranscript() : "");
+        continue;
+      }
+      List<SegmentResult> batch = batches.get(route);
+      if (batch == null) {
+        batch = new ArrayList<>();
+        batches.put(route, batch);
+      }
+      batch.add(result);
+      if (batch.size() == translationBatchSize) {
+        futures.add(submitTranslation(route, batch, checkpoint, quota));
+        batches.remove(route);
+      }
+    }
+    for (Map.Entry<TranslationRoute, List<SegmentResult>> entry : batches.entrySet()) {
+      futures.add(submitTranslation(entry.getKey(), entry.getValue(), checkpoint, quota));
+    }
+    return await(recording, futures, "Translation");
+  }
+
+  private Future<?> submitTranslation(TranslationRoute route, List<SegmentResult> batch, BatchCheckpoint checkpoint, SessionQuota quota) {
+    return workers.submit(() -> {
+      List<String> texts = new ArrayList<>(batch.size());
+      long characters = 0;
+      for (SegmentResult result : batch) {
+        texts.add(result.getTranscript());
+        characters += result.getTranscript().length();
+      }
+      long units = characters;
+      List<String> translations = rpc(quota, () -> quota.acquireTranslation(units, Long.MAX_VALUE),
+          () -> translationService.translateBatch(texts, route.getSourceLanguage(), route.getTargetLanguage(), quota));
+      for (int i = 0; i < batch.size(); i++) {
+        checkpoint.translated(batch.get(i).getIndex(), translations.get(i));
+      }
+      return null;
+    });
+  }
+
+  // Waits for quota before taking an RPC permit, so waiting calls do not block the ones that may run
+  private <T> T rpc(SessionQuota quota, QuotaGrant grant, RpcCall<T> call) throws Exception {
+    if (!grant.acquire()) {
+      throw new IOException("Quota denied");
+    }
+    rpcPermits.acquire();
+    try {
+      return call.call();
+    } catch (Exception e) {
+      quota.reportError(e);
+      throw e;
+    } finally {
+      rpcPermits.release();
+    }
+  }
+
+  private static int await(File recording, List<Future<?>> futures, String stage) throws InterruptedException {
+    int failures = 0;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        failures++;
+        log.error(stage + " failed for " + recording.getName() + ": " + e.getCause().getMessage(), e.getCause());
+      }
+    }
+    return failures;
+  }
+
+  private static void write(File output, List<AudioSegment> segments, BatchCheckpoint checkpoint) throws IOException {
+    File tmp = new File(output.getPath() + ".tmp");
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+      // segments are indexed in time order
+      for (AudioSegment segment : segments) {
+        SegmentResult result = checkpoint.get(segment.getIndex());
+        if (result == null || result.getTranscript().isEmpty()) {
+          continue;
+        }
+        writer.write("[" + timestamp(result.getStartMillis()) + " --> " + timestamp(result.getEndMillis()) + "] " + result.getTranscript() + "\n");
+        writer.write("    " + result.getTranslation() + "\n");
+      }
+    }
+    if (!tmp.renameTo(output)) {
+      throw new IOException("Could not rename " + tmp + " to " + output);
+    }
+  }
+
+  // Decodes any format Java Sound can read and converts it to the profile's capture format
+  static byte[] decode(File file, AudioFormat target) throws IOException {
+    try (AudioInputStream source = AudioSystem.getAudioInputStream(file)) {
+      AudioInputStream pcm = source;
+      AudioFormat format = source.getFormat();
+      // the whole recording is held in memory, refuse one that cannot fit instead of running out of heap
+      if (source.getFrameLength() != AudioSystem.NOT_SPECIFIED) {
+        long expectedBytes = (long) (source.getFrameLength() * (double) target.getSampleRate() / format.getFrameRate()) * target.getFrameSize();
+        if (expectedBytes > Math.min(Integer.MAX_VALUE - 8, Runtime.getRuntime().maxMemory() / 3)) {
+          throw new IOException(file + " decodes to " + (expectedBytes >> 20) + " MB of PCM, too much for the heap; split it or raise -Xmx");
+        }
+      }
+      if (!format.matches(target)) {
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())) {
+          AudioFormat signed = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+          pcm = AudioSystem.getAudioInputStream(signed, pcm);
+        }
+        pcm = AudioSystem.getAudioInputStream(target, pcm);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = pcm.read(buffer)) > 0) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+      throw new IOException("Cannot decode " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  static String timestamp(long millis) {
+    return String.format("%02d:%02d:%02d.%03d", millis / 3600000, millis / 60000 % 60, millis / 1000 % 60, millis % 1000);
+  }
+
+  private static String baseName(File file) {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(0, dot) : name;
+  }
+
+  private interface RpcCall<T> {
+    T call() throws Exception;
+  }
+
+  private interface QuotaGrant {
+    boolean acquire() throws InterruptedException;
+  }
+}
@@ -0,0 +1,175 @@
+package com.litongjava.zoom.translator.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.litongjava.zoom.translator.CredentialsLoader;
+import com.litongjava.zoom.translator.SpeechToTextService;
+import com.litongjava.zoom.translator.TranslationService;
+import com.litongjava.zoom.translator.config.SessionProfile;
+import com.litongjava.zoom.translator.config.SessionProfileLoader;
+import com.litongjava.zoom.translator.grpc.ChannelPoolConfig;
+import com.litongjava.zoom.translator.grpc.GoogleChannelPools;
+import com.litongjava.zoom.translator.quota.QuotaConfig;
+import com.litongjava.zoom.translator.quota.QuotaScheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline captioning of recorded meetings, started with {@code --batch} (see {@link #USAGE}).
+ * <p>
+ * Languages and STT model come from the active session profile, like the live app. Output and checkpoint
+ * files are written to the output directory, one pair per recording; rerunning the same command resumes.
+ */
+@Slf4j
+public class BatchTranscriptionApp {
+
+  static final String USAGE = "Usage: --batch <recording or directory> <output directory> [--workers N] [--rpcs N] [--recordings N] [--translate-batch N]\n"
+      + "Each recording is decoded into memory, --recordings at a time: about 115 MB per hour of audio at 16 kHz. Split longer recordings or raise -Xmx.";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      usage(null);
+    }
+    File input = new File(args[0]);
+    File outputDir = new File(args[1]);
+    int cores = Runtime.getRuntime().availableProcessors();
+    int workers = cores * 4; // segments spend most of their time waiting on the network
+    int rpcs = -1;
+    int parallelRecordings = 2; // overlaps one recording's tail with the next one's start
+    int translateBatch = 25;
+    for (int i = 2; i < args.length; i += 2) {
+      if (i + 1 == args.length) {
+        usage("Missing value for " + args[i]);
+      }
+      int value = positiveInt(args[i], args[i + 1]);
+      switch (args[i]) {
+      case "--workers":
+        workers = value;
+        break;
+      case "--rpcs":
+        rpcs = value;
+        break;
+      case "--recordings":
+        parallelRecordings = value;
+        break;
+      case "--translate-batch":
+        translateBatch = value;
+        break;
+      default:
+        usage("Unknown option " + args[i]);
+      }
+    }
+
+    if (rpcs <= 0) {
+      rpcs = workers;
+    }
+
+    List<File> recordings = recordings(input);
+    if (recordings.isEmpty()) {
+      System.err.println("No recordings found in " + input);
+      System.exit(2);
+    }
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      System.err.println("Cannot create " + outputDir);
+      System.exit(2);
+    }
+
+    SessionProfile profile = new SessionProfileLoader().current();
+    GoogleCredentials credentials = CredentialsLoader.load();
+    // enough channels that the allowed concurrent RPCs do not queue on a single connection
+    ChannelPoolConfig poolConfig = ChannelPoolConfig.fromSystemProperties();
+    poolConfig.setMaxChannels(Math.max(poolConfig.getMaxChannels(), (rpcs + poolConfig.getMaxConcurrentStreamsPerChannel() - 1) / poolConfig.getMaxConcurrentStreamsPerChannel()));
+    GoogleChannelPools channelPools = new GoogleChannelPools(poolConfig);
+    SpeechToTextService speechToTextService = new SpeechToTextService(credentials, channelPools);
+    TranslationService translationService = new TranslationService(credentials, channelPools);
+
+    // Bounded queue + caller runs: submitting recordings cannot pile up unbounded work in memory
+    ExecutorService workerPool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(workers * 16), r -> {
+      Thread t = new Thread(r, "BatchWorkerThread");
+      t.setDaemon(true);
+      return t;
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+    ExecutorService recordingPool = Executors.newFixedThreadPool(parallelRecordings, r -> new Thread(r, "BatchRecordingThread"));
+    QuotaScheduler quotaScheduler = new QuotaScheduler(QuotaConfig.fromSystemProperties());
+    BatchTranscriber transcriber = new BatchTranscriber(speechToTextService, translationService, profile, workerPool, rpcs, translateBatch, quotaScheduler);
+
+    log.info("Batch job: " + recordings.size() + " recordings, " + workers + " workers, " + rpcs + " concurrent RPCs, profile " + profile.getName());
+    long start = System.currentTimeMillis();
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (File recording : recordings) {
+      results.add(recordingPool.submit(() -> transcriber.process(recording, outputDir)));
+    }
+    int failed = 0;
+    for (int i = 0; i < results.size(); i++) {
+      try {
+        if (!results.get(i).get()) {
+          failed++;
+        }
+      } catch (ExecutionException e) {
+        failed++;
+        log.error("Failed to process " + recordings.get(i) + ": " + e.getCause().getMessage(), e.getCause());
+      }
+    }
+    long elapsed = Math.max(1, System.currentTimeMillis() - start);
+    log.info("Batch job finished in " + elapsed / 1000 + " s, " + failed + " of " + recordings.size() + " recordings incomplete, speed "
+        + String.format("%.1f", (double) transcriber.getAudioMillis() / elapsed) + "x real time.");
+    channelPools.logMetrics();
+    quotaScheduler.logMetrics();
+
+    recordingPool.shutdown();
+    workerPool.shutdown();
+    speechToTextService.shutdown();
+    translationService.shutdown();
+    channelPools.shutdown();
+    System.exit(failed == 0 ? 0 : 1);
+  }
+
+  private static int positiveInt(String option, String value) {
+    try {
+      int parsed = Integer.parseInt(value);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    usage(option + " needs a positive number, got '" + value + "'");
+    return -1;
+  }
+
+  private static void usage(String error) {
+    if (error != null) {
+      System.err.println(error);
+    }
+    System.err.println(USAGE);
+    System.exit(2);
+  }
+
+  private static List<File> recordings(File input) {
+    List<File> files = new ArrayList<>();
+    if (input.isFile()) {
+      files.add(input);
+      return files;
+    }
+    File[] children = input.listFiles((dir, name) -> {
+      String lower = name.toLowerCase();
+      return lower.endsWith(".wav") || lower.endsWith(".aiff") || lower.endsWith(".aif") || lower.endsWith(".au");
+    });
+    if (children != null) {
+      Arrays.sort(children);
+      files.addAll(Arrays.asList(children));
+    }
+    return files;
+  }
+}
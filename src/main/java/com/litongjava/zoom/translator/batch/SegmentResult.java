@@ -0,0 +1,19 @@
+package com.litongjava.zoom.translator.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentResult {
+  private int index;
+  private long startMillis;
+  private long endMillis;
+  private String transcript;
+  // language Speech detected for the segment
+  private String languageCode;
+  // null until the translation step finished
+  private String translation;
+}
@@ -0,0 +1,111 @@
+package com.litongjava.zoom.translator.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.litongjava.zoom.translator.dsp.AudioFeatures;
+import com.litongjava.zoom.translator.dsp.AudioFrame;
+import com.litongjava.zoom.translator.dsp.FeatureExtractor;
+import com.litongjava.zoom.translator.dsp.NoiseFloorEstimator;
+import com.litongjava.zoom.translator.dsp.VoiceActivityDetector;
+
+/**
+ * Splits a 16-bit mono PCM recording into segments for synchronous recognition.
+ * <p>
+ * Runs the same features and VAD as the live pipeline on 100 ms frames. A segment is cut in the middle of
+ * the first pause of at least {@code minSilenceMillis} once it is longer than {@code minSegmentMillis}; if no
+ * pause comes it is cut at the quietest frame of its last quarter before {@code maxSegmentMillis} (the sync
+ * API accepts about a minute). Segments without any speech frame are dropped so they cost no RPC. The
+ * result only depends on the audio, which lets an interrupted job resume by segment index.
+ */
+public class SilenceSplitter {
+
+  private static final int FRAME_MILLIS = 100;
+
+  private final int minSilenceMillis;
+  private final int minSegmentMillis;
+  private final int maxSegmentMillis;
+
+  public SilenceSplitter() {
+    this(400, 3000, 50000);
+  }
+
+  public SilenceSplitter(int minSilenceMillis, int minSegmentMillis, int maxSegmentMillis) {
+    this.minSilenceMillis = minSilenceMillis;
+    this.minSegmentMillis = minSegmentMillis;
+    this.maxSegmentMillis = maxSegmentMillis;
+  }
+
+  public List<AudioSegment> split(byte[] pcm, int sampleRate) {
+    int frameBytes = sampleRate * 2 * FRAME_MILLIS / 1000;
+    int frameCount = (pcm.length + frameBytes - 1) / frameBytes;
+    float[] rms = new float[frameCount];
+    boolean[] speech = new boolean[frameCount];
+
+    AudioFrame frame = new AudioFrame();
+    AudioFeatures features = new AudioFeatures();
+    FeatureExtractor extractor = new FeatureExtractor(sampleRate);
+    NoiseFloorEstimator noiseFloor = new NoiseFloorEstimator();
+    VoiceActivityDetector vad = new VoiceActivityDetector();
+    byte[] buffer = new byte[frameBytes];
+    for (int i = 0; i < frameCount; i++) {
+      int length = Math.min(frameBytes, pcm.length - i * frameBytes);
+      System.arraycopy(pcm, i * frameBytes, buffer, 0, length);
+      frame.readPcm16le(buffer, length);
+      extractor.extract(frame, features);
+      features.setNoiseFloorDbfs(noiseFloor.update(features.getRmsDbfs(), i > 0 && speech[i - 1]));
+      rms[i] = features.getRms();
+      speech[i] = vad.update(features);
+    }
+
+    int minSilenceFrames = minSilenceMillis / FRAME_MILLIS;
+    int minSegmentFrames = minSegmentMillis / FRAME_MILLIS;
+    int maxSegmentFrames = maxSegmentMillis / FRAME_MILLIS;
+
+    List<AudioSegment> segments = new ArrayList<>();
+    int start = 0;
+    int silentRun = 0;
+    for (int i = 0; i < frameCount; i++) {
+      silentRun = speech[i] ? 0 : silentRun + 1;
+      int length = i + 1 - start;
+      int cut = -1;
+      if (silentRun >= minSilenceFrames && length >= minSegmentFrames) {
+        cut = i + 1 - silentRun / 2;
+      } else if (length >= maxSegmentFrames) {
+        cut = quietest(rms, start + length * 3 / 4, i + 1) + 1;
+      }
+      if (cut > start) {
+        add(segments, speech, start, cut, frameBytes, pcm.length);
+        start = cut;
+        silentRun = 0;
+      }
+    }
+    if (start < frameCount) {
+      add(segments, speech, start, frameCount, frameBytes, pcm.length);
+    }
+    return segments;
+  }
+
+  private static int quietest(float[] rms, int from, int to) {
+    int best = from;
+    for (int i = from + 1; i < to; i++) {
+      if (rms[i] < rms[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  private static void add(List<AudioSegment> segments, boolean[] speech, int fromFrame, int toFrame, int frameBytes, int totalBytes) {
+    boolean hasSpeech = false;
+    for (int i = fromFrame; i < toFrame && !hasSpeech; i++) {
+      hasSpeech = speech[i];
+    }
+    if (!hasSpeech) {
+      return;
+    }
+    int offset = fromFrame * frameBytes;
+    int end = Math.min(totalBytes, toFrame * frameBytes);
+    segments.add(new AudioSegment(segments.size(), (long) fromFrame * FRAME_MILLIS, (long) end * FRAME_MILLIS / frameBytes, offset, end - offset));
+  }
+}
@@ -0,0 +1,164 @@
+package com.litongjava.zoom.translator.caption;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Builds caption cues word by word as results arrive. A cue is closed when the next word would not fit in
+ * {@code maxLines} lines of {@code maxLineChars}, when it would last longer than {@code maxCueMillis},
+ * after a pause, or at the end of a sentence once it has been on screen long enough. Each word costs a
+ * constant amount of work; nothing already emitted is revisited.
+ */
+public class CaptionSegmenter {
+
+  static final long MIN_CUE_MILLIS = 1000;
+  private static final long MAX_PAUSE_MILLIS = 1500;
+
+  private final int maxLineChars;
+  private final int maxLines;
+  private final long maxCueMillis;
+  private final Consumer<Cue> listener;
+
+  private final StringBuilder text = new StringBuilder();
+  private int lineWidth;
+  private int lines;
+  private long cueStart = -1;
+  private long cueEnd;
+  // end of the last emitted cue, cues never overlap
+  private long lastEnd;
+
+  public CaptionSegmenter(int maxLineChars, int maxLines, long maxCueMillis, Consumer<Cue> listener) {
+    this.maxLineChars = maxLineChars;
+    this.maxLines = maxLines;
+    this.maxCueMillis = maxCueMillis;
+    this.listener = listener;
+  }
+
+  public void addWord(TimedWord word) {
+    String token = word.getText() == null ? "" : word.getText().trim();
+    if (token.isEmpty()) {
+      return;
+    }
+    int width = width(token);
+    boolean space = lineWidth > 0 && needsSpace(text.charAt(text.length() - 1), token.charAt(0));
+    if (cueStart >= 0) {
+      boolean pause = word.getStartMillis() - cueEnd > MAX_PAUSE_MILLIS;
+      boolean tooLong = word.getEndMillis() - cueStart > maxCueMillis;
+      boolean full = lines >= maxLines && lineWidth + (space ? 1 : 0) + width > maxLineChars;
+      boolean sentence = endsSentence(text.charAt(text.length() - 1)) && cueEnd - cueStart >= MIN_CUE_MILLIS;
+      if (pause || tooLong || full || sentence) {
+        emit();
+        space = false;
+      }
+    }
+    if (cueStart < 0) {
+      cueStart = Math.max(word.getStartMillis(), lastEnd);
+      cueEnd = cueStart;
+      lines = 1;
+    } else if (lineWidth + (space ? 1 : 0) + width > maxLineChars) {
+      text.append('\n');
+      lines++;
+      lineWidth = 0;
+      space = false;
+    }
+    if (space) {
+      text.append(' ');
+      lineWidth++;
+    }
+    text.append(token);
+    lineWidth += width;
+    cueEnd = Math.max(cueEnd, word.getEndMillis());
+  }
+
+  // Closes the open cue, called at the end of every final result so cues never span two utterances
+  public void flush() {
+    if (cueStart >= 0) {
+      emit();
+    }
+  }
+
+  private void emit() {
+    long end = Math.max(cueEnd, cueStart + MIN_CUE_MILLIS);
+    Cue cue = new Cue(cueStart, end, text.toString());
+    text.setLength(0);
+    lineWidth = 0;
+    lines = 0;
+    cueStart = -1;
+    lastEnd = end;
+    listener.accept(cue);
+  }
+
+  // Splits text into words, every CJK character is a word of its own
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder token = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isWhitespace(c) || isWide(c)) {
+        if (token.length() > 0) {
+          tokens.add(token.toString());
+          token.setLength(0);
+        }
+        if (isWide(c)) {
+          tokens.add(String.valueOf(c));
+        }
+      } else {
+        token.append(c);
+      }
+    }
+    if (token.length() > 0) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  // Wraps tokens into lines of maxLineChars display columns
+  static String wrap(List<String> tokens, int maxLineChars) {
+    StringBuilder sb = new StringBuilder();
+    int lineWidth = 0;
+    for (String token : tokens) {
+      int width = width(token);
+      boolean space = lineWidth > 0 && needsSpace(sb.charAt(sb.length() - 1), token.charAt(0));
+      if (lineWidth > 0 && lineWidth + (space ? 1 : 0) + width > maxLineChars) {
+        sb.append('\n');
+        lineWidth = 0;
+        space = false;
+      }
+      if (space) {
+        sb.append(' ');
+        lineWidth++;
+      }
+      sb.append(token);
+      lineWidth += width;
+    }
+    return sb.toString();
+  }
+
+  // CJK characters take two columns on screen
+  static int width(String token) {
+    int width = 0;
+    for (int i = 0; i < token.length(); i++) {
+      width += isWide(token.charAt(i)) ? 2 : 1;
+    }
+    return width;
+  }
+
+  private static boolean needsSpace(char previous, char next) {
+    if (isWide(previous) || isWide(next)) {
+      return false;
+    }
+    return ",.;:!?%)".indexOf(next) < 0;
+  }
+
+  private static boolean endsSentence(char c) {
+    return ".?!\u3002\uff1f\uff01".indexOf(c) >= 0; // also 。？！
+  }
+
+  private static boolean isWide(char c) {
+    Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+    return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+        || block == Character.UnicodeBlock.HIRAGANA || block == Character.UnicodeBlock.KATAKANA
+        || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+  }
+}
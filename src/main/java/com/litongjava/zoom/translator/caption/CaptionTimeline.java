@@ -0,0 +1,145 @@
+package com.litongjava.zoom.translator.caption;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.litongjava.zoom.translator.TranscriptResult;
+import com.litongjava.zoom.translator.config.SessionProfile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Live captions of a session on the capture clock. Final results are segmented into source cues as they
+ * arrive; when the translation of a result comes back it is split over that result's source cues in
+ * proportion to their length, so both tracks share the same timing.
+ */
+@Slf4j
+public class CaptionTimeline implements Closeable {
+
+  // results whose translation is still expected; older ones are forgotten
+  private static final int MAX_PENDING = 256;
+  // spacing used when Speech returned no word offsets
+  private static final long FALLBACK_WORD_MILLIS = 400;
+
+  private final CaptureClock clock;
+  private final int maxLineChars;
+  private final CaptionWriter sourceWriter;
+  private final CaptionWriter translationWriter;
+  private final CaptionSegmenter segmenter;
+
+  private final Map<TranscriptResult, List<Cue>> pending = new IdentityHashMap<>();
+  private final ArrayDeque<TranscriptResult> pendingOrder = new ArrayDeque<>();
+  private List<Cue> utteranceCues = new ArrayList<>();
+  private long lastEndMillis;
+
+  public CaptionTimeline(CaptureClock clock, SessionProfile profile, CaptionWriter sourceWriter, CaptionWriter translationWriter) {
+    this.clock = clock;
+    this.maxLineChars = profile.getCaptionMaxLineChars();
+    this.sourceWriter = sourceWriter;
+    this.translationWriter = translationWriter;
+    this.segmenter = new CaptionSegmenter(maxLineChars, profile.getCaptionMaxLines(), profile.getCaptionMaxCueMillis(), cue -> {
+      sourceWriter.write(cue);
+      utteranceCues.add(cue);
+      lastEndMillis = cue.getEndMillis();
+    });
+  }
+
+  // captions-<start time>.source.vtt and captions-<start time>.translated.vtt in the given directory
+  public static CaptionTimeline open(File directory, SessionProfile profile, CaptureClock clock) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create caption directory " + directory);
+    }
+    SubtitleFormat format = SubtitleFormat.forName(profile.getCaptionFormat());
+    String base = "captions-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(clock.getStartEpochMillis()));
+    CaptionWriter source = new CaptionWriter(new File(directory, base + ".source." + format.getExtension()), format, clock.getStartEpochMillis());
+    CaptionWriter translated = new CaptionWriter(new File(directory, base + ".translated." + format.getExtension()), format,
+        clock.getStartEpochMillis());
+    log.info("Writing captions to " + new File(directory, base).getAbsolutePath() + ".*." + format.getExtension());
+    return new CaptionTimeline(clock, profile, source, translated);
+  }
+
+  public synchronized void addTranscript(TranscriptResult result) {
+    List<TimedWord> words = result.getWords();
+    if (words != null && !words.isEmpty()) {
+      for (TimedWord word : words) {
+        segmenter.addWord(new TimedWord(word.getText(), clock.toCaptureMillis(word.getStartMillis()), clock.toCaptureMillis(word.getEndMillis())));
+      }
+    } else {
+      // no word offsets: spread the words evenly up to the end of the result
+      List<String> tokens = CaptionSegmenter.tokenize(result.getTranscript());
+      long start = lastEndMillis;
+      long end = result.getEndMillis() >= 0 ? clock.toCaptureMillis(result.getEndMillis()) : 0;
+      long step = end > start && !tokens.isEmpty() ? (end - start) / tokens.size() : FALLBACK_WORD_MILLIS;
+      for (int i = 0; i < tokens.size(); i++) {
+        segmenter.addWord(new TimedWord(tokens.get(i), start + i * step, start + (i + 1) * step));
+      }
+    }
+    segmenter.flush();
+
+    pending.put(result, utteranceCues);
+    pendingOrder.add(result);
+    if (pendingOrder.size() > MAX_PENDING) {
+      pending.remove(pendingOrder.poll());
+    }
+    utteranceCues = new ArrayList<>();
+  }
+
+  // original must be the same instance that was passed to addTranscript
+  public synchronized void addTranslation(TranscriptResult original, String translation) {
+    List<Cue> source = pending.remove(original);
+    List<String> tokens = CaptionSegmenter.tokenize(translation == null ? "" : translation);
+    if (source == null || source.isEmpty() || tokens.isEmpty()) {
+      return;
+    }
+    long sourceWidth = 0;
+    for (Cue cue : source) {
+      sourceWidth += CaptionSegmenter.width(cue.getText());
+    }
+    long translatedWidth = 0;
+    for (String token : tokens) {
+      translatedWidth += CaptionSegmenter.width(token);
+    }
+
+    int t = 0;
+    long width = 0;
+    long cumulative = 0;
+    long start = -1;
+    for (int k = 0; k < source.size(); k++) {
+      Cue cue = source.get(k);
+      boolean last = k == source.size() - 1;
+      cumulative += CaptionSegmenter.width(cue.getText());
+      long limit = translatedWidth * cumulative / Math.max(1, sourceWidth);
+      List<String> piece = new ArrayList<>();
+      // a token belongs to the cue its midpoint falls into
+      while (t < tokens.size() && (last || width + CaptionSegmenter.width(tokens.get(t)) / 2 <= limit)) {
+        width += CaptionSegmenter.width(tokens.get(t));
+        piece.add(tokens.get(t++));
+      }
+      if (start < 0) {
+        start = cue.getStartMillis();
+      }
+      if (!piece.isEmpty()) {
+        // translated lines may need more lines than the source, they are wrapped but not cut
+        translationWriter.write(new Cue(start, cue.getEndMillis(), CaptionSegmenter.wrap(piece, maxLineChars)));
+        start = -1;
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      sourceWriter.close();
+    } finally {
+      translationWriter.close();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.litongjava.zoom.translator.caption;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends cues to a subtitle file as they are produced. Every cue is flushed, so a player or overlay
+ * tailing the file sees it right away.
+ */
+@Slf4j
+public class CaptionWriter implements Closeable {
+
+  private final File file;
+  private final SubtitleFormat format;
+  private final Writer writer;
+  private int index;
+  private boolean closed;
+
+  public CaptionWriter(File file, SubtitleFormat format, long startEpochMillis) throws IOException {
+    this.file = file;
+    this.format = format;
+    this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    writer.write(format.header(startEpochMillis));
+    writer.flush();
+  }
+
+  public synchronized void write(Cue cue) {
+    if (closed) {
+      return;
+    }
+    try {
+      writer.write(format.cue(++index, cue));
+      writer.flush();
+    } catch (IOException e) {
+      log.error("Failed to write caption to " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      writer.close();
+      log.info("Wrote " + index + " cues to " + file);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.litongjava.zoom.translator.caption;
+
+import java.util.Arrays;
+
+/**
+ * Maps offsets in the audio sent to Speech back to the capture timeline of {@code AudioRecorder}. The two
+ * only differ when the recorder drops chunks because the audio queue is full or skips them at the gate;
+ * every such chunk is recorded as a gap at the stream position where it would have been sent. Gaps at the
+ * same position are merged, so a long run of skipped silence is one entry. Accurate to one chunk.
+ */
+public class CaptureClock {
+
+  private final int bytesPerSecond;
+  private final long startEpochMillis;
+  // written by the recording thread only
+  private long capturedBytes;
+  private long droppedBytes;
+  // gaps ordered by stream position: capture bytes skipped up to and including gap i, guarded by this
+  private long[] positions = new long[16];
+  private long[] skipped = new long[16];
+  private int gapCount;
+
+  public CaptureClock(int sampleRate, long startEpochMillis) {
+    this.bytesPerSecond = sampleRate * 2;
+    this.startEpochMillis = startEpochMillis;
+  }
+
+  // Wall clock time of capture offset 0
+  public long getStartEpochMillis() {
+    return startEpochMillis;
+  }
+
+  public void captured(int bytes) {
+    capturedBytes += bytes;
+  }
+
+  // The oldest queued chunk was dropped; queuedBytes is what is still waiting in the queue after removing it
+  public void dropped(int bytes, long queuedBytes) {
+    gap(Math.max(0, capturedBytes - droppedBytes - queuedBytes - bytes), bytes);
+  }
+
+  // A freshly captured chunk never entered the queue, so its gap is at the tail of the stream
+  public void skipped(int bytes) {
+    long streamPosition = capturedBytes - droppedBytes;
+    capturedBytes += bytes;
+    gap(streamPosition, bytes);
+  }
+
+  private synchronized void gap(long streamPosition, int bytes) {
+    droppedBytes += bytes;
+    int index = upperBound(streamPosition);
+    // a dropped chunk can sit before gaps recorded while it was queued; those move up by its size
+    for (int i = index; i < gapCount; i++) {
+      positions[i] -= bytes;
+      skipped[i] += bytes;
+    }
+    boolean mergesBefore = index > 0 && positions[index - 1] == streamPosition;
+    if (index < gapCount && positions[index] == streamPosition) {
+      // the next gap now starts here and already counts these bytes
+      if (mergesBefore) {
+        remove(index - 1);
+      }
+    } else if (mergesBefore) {
+      skipped[index - 1] += bytes;
+    } else {
+      insert(index, streamPosition, (index == 0 ? 0 : skipped[index - 1]) + bytes);
+    }
+  }
+
+  public synchronized long toCaptureMillis(long streamMillis) {
+    long streamBytes = streamMillis * bytesPerSecond / 1000;
+    int index = upperBound(streamBytes);
+    long skippedBytes = index == 0 ? 0 : skipped[index - 1];
+    return (streamBytes + skippedBytes) * 1000 / bytesPerSecond;
+  }
+
+  // Index of the first gap after streamPosition
+  private int upperBound(long streamPosition) {
+    int low = 0;
+    int high = gapCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (positions[mid] <= streamPosition) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void insert(int index, long streamPosition, long skippedBytes) {
+    if (gapCount == positions.length) {
+      positions = Arrays.copyOf(positions, gapCount * 2);
+      skipped = Arrays.copyOf(skipped, gapCount * 2);
+    }
+    System.arraycopy(positions, index, positions, index + 1, gapCount - index);
+    System.arraycopy(skipped, index, skipped, index + 1, gapCount - index);
+    positions[index] = streamPosition;
+    skipped[index] = skippedBytes;
+    gapCount++;
+  }
+
+  private void remove(int index) {
+    System.arraycopy(positions, index + 1, positions, index, gapCount - index - 1);
+    System.arraycopy(skipped, index + 1, skipped, index, gapCount - index - 1);
+    gapCount--;
+  }
+}
@@ -0,0 +1,17 @@
+package com.litongjava.zoom.translator.caption;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One caption cue, times on the capture clock. Lines are separated by '\n'.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Cue {
+  private long startMillis;
+  private long endMillis;
+  private String text;
+}
@@ -0,0 +1,53 @@
+package com.litongjava.zoom.translator.caption;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Text layout of the two subtitle formats players and video tools accept.
+ */
+public enum SubtitleFormat {
+  SRT("srt", ','), WEBVTT("vtt", '.');
+
+  private final String extension;
+  private final char millisSeparator;
+
+  SubtitleFormat(String extension, char millisSeparator) {
+    this.extension = extension;
+    this.millisSeparator = millisSeparator;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  // "srt", "vtt" or "webvtt"
+  public static SubtitleFormat forName(String name) {
+    for (SubtitleFormat format : values()) {
+      if (format.extension.equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown caption format: " + name);
+  }
+
+  public String header(long startEpochMillis) {
+    if (this == SRT) {
+      return "";
+    }
+    String started = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(startEpochMillis));
+    return "WEBVTT\n\nNOTE capture started " + started + "\n\n";
+  }
+
+  // SRT needs a running cue number, WebVTT uses it as the optional cue id
+  public String cue(int index, Cue cue) {
+    return index + "\n" + timestamp(cue.getStartMillis()) + " --> " + timestamp(cue.getEndMillis()) + "\n" + cue.getText() + "\n\n";
+  }
+
+  public String timestamp(long millis) {
+    long hours = millis / 3_600_000;
+    long minutes = millis / 60_000 % 60;
+    long seconds = millis / 1000 % 60;
+    return String.format("%02d:%02d:%02d%c%03d", hours, minutes, seconds, millisSeparator, millis % 1000);
+  }
+}
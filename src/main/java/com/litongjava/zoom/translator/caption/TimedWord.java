@@ -0,0 +1,17 @@
+package com.litongjava.zoom.translator.caption;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A recognized word with its start and end offset in milliseconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimedWord {
+  private String text;
+  private long startMillis;
+  private long endMillis;
+}
@@ -0,0 +1,145 @@
+package com.litongjava.zoom.translator.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+
+import com.litongjava.zoom.translator.device.DeviceSelector;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything a translation session can be tuned with. Loaded by {@link SessionProfileLoader}; the defaults
+ * are the values the app used before profiles existed.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionProfile {
+  @Builder.Default
+  private String name = "default";
+
+  // capture
+  @Builder.Default
+  private int sampleRate = 16000;
+  // at least one FFT block of the VAD (512 samples, 32 ms at 16 kHz)
+  @Builder.Default
+  private int chunkMillis = 100;
+  // 0 = unbounded; when bounded the oldest chunk is dropped instead of stalling the capture thread
+  @Builder.Default
+  private int audioQueueCapacity = 0;
+  @Builder.Default
+  private String devicePattern = DeviceSelector.DEFAULT_PATTERN;
+  @Builder.Default
+  private boolean deviceRequireCapture = true;
+  @Builder.Default
+  private boolean noiseSuppression = false;
+  @Builder.Default
+  private boolean agc = false;
+
+  // speech-to-text
+  @Builder.Default
+  private String sttLanguage = "en-US";
+  // up to 3 extra languages (comma separated) Speech may detect per utterance, e.g. "cmn-Hans-CN,es-ES"
+  @Builder.Default
+  private String sttAlternativeLanguages = "";
+  // empty = let the API pick, otherwise e.g. latest_long, video, phone_call
+  @Builder.Default
+  private String sttModel = "";
+  @Builder.Default
+  private boolean sttUseEnhanced = false;
+
+  // translation
+  @Builder.Default
+  private String translationSourceLanguage = "en";
+  @Builder.Default
+  private String translationTargetLanguage = "zh-CN";
+  // per detected language targets, e.g. "zh:en,es:en"; other languages go to translationTargetLanguage
+  @Builder.Default
+  private String translationRoutes = "";
+  // utterances sent in one translateText call
+  @Builder.Default
+  private int translationBatchSize = 1;
+  // how long to wait for more utterances before sending a partial batch
+  @Builder.Default
+  private int translationBatchDelayMillis = 0;
+  // translated phrases kept in memory, 0 disables the cache
+  @Builder.Default
+  private int translationCacheSize = 1000;
+  @Builder.Default
+  private int maxConcurrentTranslations = 1;
+
+  // quota
+  // presenter, audience or background; lower classes give way first when quota runs short
+  @Builder.Default
+  private String sessionPriority = "presenter";
+  // detected languages (comma separated) whose translation is paused under heavy quota pressure, e.g. "es"
+  @Builder.Default
+  private String lowPriorityLanguages = "";
+
+  // speech output
+  @Builder.Default
+  private boolean ttsEnabled = false;
+  // auto = the OS engine (say / espeak-ng / PowerShell), or one of say, espeak, powershell
+  @Builder.Default
+  private String ttsEngine = "auto";
+  // engine specific voice name, empty = pick one by language
+  @Builder.Default
+  private String ttsVoice = "";
+  // phrases spoken later than this after their caption are skipped
+  @Builder.Default
+  private int ttsMaxLatencyMillis = 4000;
+  // how much a late phrase may be sped up to catch up
+  @Builder.Default
+  private float ttsMaxSpeed = 1.5f;
+  // budget of the TTS cache, in memory and again on disk
+  @Builder.Default
+  private int ttsCacheMegabytes = 32;
+
+  // captions
+  // directory for live subtitle files, empty = no caption files
+  @Builder.Default
+  private String captionDirectory = "";
+  // vtt or srt
+  @Builder.Default
+  private String captionFormat = "vtt";
+  // display columns per line, CJK characters count as two
+  @Builder.Default
+  private int captionMaxLineChars = 42;
+  @Builder.Default
+  private int captionMaxLines = 2;
+  @Builder.Default
+  private int captionMaxCueMillis = 7000;
+
+  public List<String> alternativeLanguages() {
+    return split(sttAlternativeLanguages);
+  }
+
+  public List<String> lowPriorityLanguages() {
+    return split(lowPriorityLanguages);
+  }
+
+  public AudioFormat captureFormat() {
+    // 16-bit signed little-endian mono, what LINEAR16 expects
+    return new AudioFormat(sampleRate, 16, 1, true, false);
+  }
+
+  public int chunkBytes() {
+    return sampleRate * 2 * chunkMillis / 1000;
+  }
+
+  private static List<String> split(String list) {
+    List<String> values = new ArrayList<>();
+    for (String value : list.split(",")) {
+      if (!value.trim().isEmpty()) {
+        values.add(value.trim());
+      }
+    }
+    return values;
+  }
+}
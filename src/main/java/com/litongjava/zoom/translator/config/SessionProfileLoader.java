@@ -0,0 +1,370 @@
+package com.litongjava.zoom.translator.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.litongjava.zoom.translator.caption.SubtitleFormat;
+import com.litongjava.zoom.translator.dsp.FeatureExtractor;
+import com.litongjava.zoom.translator.language.LanguageRouter;
+import com.litongjava.zoom.translator.quota.Priority;
+import com.litongjava.zoom.translator.tts.CommandLineSpeechSynthesizer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads {@link SessionProfile}s from a properties file and keeps the active one up to date.
+ * <p>
+ * The file is taken from the zoom.translator.config system property, the ZOOM_TRANSLATOR_CONFIG env var, or
+ * zoom-translator.properties in the working directory, falling back to the same name on the classpath. Keys
+ * look like {@code profile.<name>.<field>}; {@code profile.active} (or zoom.translator.profile /
+ * ZOOM_TRANSLATOR_PROFILE) selects the profile and every profile
+ * inherits unset fields from {@code profile.default}. An env var named after the field in upper snake case
+ * with a ZOOM_TRANSLATOR_ prefix (e.g. ZOOM_TRANSLATOR_TRANSLATION_TARGET_LANGUAGE) wins over the file.
+ * <p>
+ * A file on disk is watched; edits are validated and swapped in without restarting, running sessions pick
+ * them up on their next start.
+ */
+@Slf4j
+public class SessionProfileLoader {
+
+  public static final String DEFAULT_FILE_NAME = "zoom-translator.properties";
+
+  private final File file;
+  private final AtomicReference<SessionProfile> current = new AtomicReference<>();
+  private final List<Consumer<SessionProfile>> listeners = new CopyOnWriteArrayList<>();
+  private WatchService watchService;
+
+  public SessionProfileLoader() {
+    this(locate());
+  }
+
+  public SessionProfileLoader(File file) {
+    this.file = file;
+    SessionProfile profile;
+    try {
+      profile = load();
+    } catch (IllegalArgumentException e) {
+      // start with the built-in defaults, the file can still be fixed while the app runs
+      log.error("Invalid profile file " + file + ", using defaults: " + e.getMessage());
+      profile = SessionProfile.builder().build();
+    }
+    current.set(profile);
+  }
+
+  public SessionProfile current() {
+    return current.get();
+  }
+
+  public void addListener(Consumer<SessionProfile> listener) {
+    listeners.add(listener);
+  }
+
+  public void startWatching() {
+    if (file == null || !file.isFile()) {
+      log.info("No profile file on disk, hot reload disabled.");
+      return;
+    }
+    Path dir = file.getAbsoluteFile().getParentFile().toPath();
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+    } catch (IOException e) {
+      log.warn("Cannot watch " + dir + ", hot reload disabled: " + e.getMessage());
+      return;
+    }
+    Thread watcher = new Thread(this::watch, "ProfileWatcherThread");
+    watcher.setDaemon(true);
+    watcher.start();
+    log.info("Watching " + file + " for profile changes.");
+  }
+
+  public void stopWatching() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        log.warn("Failed to close profile watcher: " + e.getMessage());
+      }
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          Object context = event.context();
+          if (context instanceof Path && ((Path) context).getFileName().toString().equals(file.getName())) {
+            changed = true;
+          }
+        }
+        key.reset();
+        if (changed) {
+          try {
+            reload();
+          } catch (RuntimeException e) {
+            // a bad edit must not stop the watcher
+            log.error("Failed to reload " + file + ": " + e.getMessage(), e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // stopWatching
+    }
+  }
+
+  public void reload() {
+    SessionProfile profile;
+    try {
+      profile = load();
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid profile file " + file + ", keeping the previous profile: " + e.getMessage());
+      return;
+    }
+    SessionProfile previous = current.get();
+    if (profile.equals(previous)) {
+      return;
+    }
+    current.set(profile);
+    try {
+      for (Consumer<SessionProfile> listener : listeners) {
+        listener.accept(profile);
+      }
+    } catch (RuntimeException e) {
+      // listeners may have applied part of it, re-apply the previous profile
+      current.set(previous);
+      log.error("Profile " + profile.getName() + " rejected, keeping the previous profile: " + e.getMessage(), e);
+      for (Consumer<SessionProfile> listener : listeners) {
+        listener.accept(previous);
+      }
+      return;
+    }
+    log.info("Profile reloaded: " + profile);
+  }
+
+  private SessionProfile load() {
+    Properties properties = new Properties();
+    if (file != null && file.isFile()) {
+      try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot read " + file + ": " + e.getMessage(), e);
+      }
+    } else {
+      try (InputStream in = SessionProfileLoader.class.getClassLoader().getResourceAsStream(DEFAULT_FILE_NAME)) {
+        if (in != null) {
+          properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot read classpath " + DEFAULT_FILE_NAME + ": " + e.getMessage(), e);
+      }
+    }
+    String active = System.getProperty("zoom.translator.profile", System.getenv("ZOOM_TRANSLATOR_PROFILE"));
+    if (active == null || active.isEmpty()) {
+      active = properties.getProperty("profile.active", "default").trim();
+    }
+    SessionProfile profile = parse(properties, active);
+    validate(profile);
+    return profile;
+  }
+
+  static SessionProfile parse(Properties properties, String name) {
+    SessionProfile d = SessionProfile.builder().build();
+    return SessionProfile.builder()
+        //
+        .name(name)
+        //
+        .sampleRate(intValue(properties, name, "sampleRate", d.getSampleRate()))
+        //
+        .chunkMillis(intValue(properties, name, "chunkMillis", d.getChunkMillis()))
+        //
+        .audioQueueCapacity(intValue(properties, name, "audioQueueCapacity", d.getAudioQueueCapacity()))
+        //
+        .devicePattern(value(properties, name, "devicePattern", d.getDevicePattern()))
+        //
+        .deviceRequireCapture(booleanValue(properties, name, "deviceRequireCapture", d.isDeviceRequireCapture()))
+        //
+        .noiseSuppression(booleanValue(properties, name, "noiseSuppression", d.isNoiseSuppression()))
+        //
+        .agc(booleanValue(properties, name, "agc", d.isAgc()))
+        //
+        .sttLanguage(value(properties, name, "sttLanguage", d.getSttLanguage()))
+        //
+        .sttAlternativeLanguages(value(properties, name, "sttAlternativeLanguages", d.getSttAlternativeLanguages()))
+        //
+        .sttModel(value(properties, name, "sttModel", d.getSttModel()))
+        //
+        .sttUseEnhanced(booleanValue(properties, name, "sttUseEnhanced", d.isSttUseEnhanced()))
+        //
+        .translationSourceLanguage(value(properties, name, "translationSourceLanguage", d.getTranslationSourceLanguage()))
+        //
+        .translationTargetLanguage(value(properties, name, "translationTargetLanguage", d.getTranslationTargetLanguage()))
+        //
+        .translationRoutes(value(properties, name, "translationRoutes", d.getTranslationRoutes()))
+        //
+        .translationBatchSize(intValue(properties, name, "translationBatchSize", d.getTranslationBatchSize()))
+        //
+        .translationBatchDelayMillis(intValue(properties, name, "translationBatchDelayMillis", d.getTranslationBatchDelayMillis()))
+        //
+        .translationCacheSize(intValue(properties, name, "translationCacheSize", d.getTranslationCacheSize()))
+        //
+        .maxConcurrentTranslations(intValue(properties, name, "maxConcurrentTranslations", d.getMaxConcurrentTranslations()))
+        //
+        .sessionPriority(value(properties, name, "sessionPriority", d.getSessionPriority()))
+        //
+        .lowPriorityLanguages(value(properties, name, "lowPriorityLanguages", d.getLowPriorityLanguages()))
+        //
+        .ttsEnabled(booleanValue(properties, name, "ttsEnabled", d.isTtsEnabled()))
+        //
+        .ttsEngine(value(properties, name, "ttsEngine", d.getTtsEngine()))
+        //
+        .ttsVoice(value(properties, name, "ttsVoice", d.getTtsVoice()))
+        //
+        .ttsMaxLatencyMillis(intValue(properties, name, "ttsMaxLatencyMillis", d.getTtsMaxLatencyMillis()))
+        //
+        .ttsMaxSpeed(floatValue(properties, name, "ttsMaxSpeed", d.getTtsMaxSpeed()))
+        //
+        .ttsCacheMegabytes(intValue(properties, name, "ttsCacheMegabytes", d.getTtsCacheMegabytes()))
+        //
+        .captionDirectory(value(properties, name, "captionDirectory", d.getCaptionDirectory()))
+        //
+        .captionFormat(value(properties, name, "captionFormat", d.getCaptionFormat()))
+        //
+        .captionMaxLineChars(intValue(properties, name, "captionMaxLineChars", d.getCaptionMaxLineChars()))
+        //
+        .captionMaxLines(intValue(properties, name, "captionMaxLines", d.getCaptionMaxLines()))
+        //
+        .captionMaxCueMillis(intValue(properties, name, "captionMaxCueMillis", d.getCaptionMaxCueMillis()))
+        //
+        .build();
+  }
+
+  private static void validate(SessionProfile profile) {
+    if (profile.getSampleRate() < 8000 || profile.getSampleRate() > 48000) {
+      throw new IllegalArgumentException("sampleRate must be between 8000 and 48000: " + profile.getSampleRate());
+    }
+    try {
+      Pattern.compile(profile.getDevicePattern());
+    } catch (PatternSyntaxException e) {
+      throw new IllegalArgumentException("devicePattern is not a valid regular expression: " + e.getMessage());
+    }
+    if (profile.getChunkMillis() < 10 || profile.getChunkMillis() > 1000) {
+      throw new IllegalArgumentException("chunkMillis must be between 10 and 1000: " + profile.getChunkMillis());
+    }
+    // a shorter chunk has no spectrum, so the VAD would never see voiced audio
+    if ((long) profile.getSampleRate() * profile.getChunkMillis() / 1000 < FeatureExtractor.FFT_SIZE) {
+      int minMillis = (FeatureExtractor.FFT_SIZE * 1000 + profile.getSampleRate() - 1) / profile.getSampleRate();
+      throw new IllegalArgumentException("chunkMillis must be at least " + minMillis + " at sampleRate " + profile.getSampleRate() + ": " + profile.getChunkMillis());
+    }
+    if (profile.getTranslationBatchSize() < 1 || profile.getMaxConcurrentTranslations() < 1) {
+      throw new IllegalArgumentException("translationBatchSize and maxConcurrentTranslations must be at least 1");
+    }
+    if (profile.alternativeLanguages().size() > 3) {
+      throw new IllegalArgumentException("Speech accepts at most 3 sttAlternativeLanguages: " + profile.getSttAlternativeLanguages());
+    }
+    new LanguageRouter(profile); // rejects malformed translationRoutes
+    if (profile.getAudioQueueCapacity() < 0 || profile.getTranslationCacheSize() < 0 || profile.getTranslationBatchDelayMillis() < 0) {
+      throw new IllegalArgumentException("audioQueueCapacity, translationCacheSize and translationBatchDelayMillis must not be negative");
+    }
+    if (profile.getTtsMaxLatencyMillis() < 500 || profile.getTtsMaxSpeed() < 1f || profile.getTtsMaxSpeed() > 2f) {
+      throw new IllegalArgumentException("ttsMaxLatencyMillis must be at least 500 and ttsMaxSpeed between 1 and 2");
+    }
+    if (profile.getTtsCacheMegabytes() < 0) {
+      throw new IllegalArgumentException("ttsCacheMegabytes must not be negative: " + profile.getTtsCacheMegabytes());
+    }
+    Priority.forName(profile.getSessionPriority());
+    CommandLineSpeechSynthesizer.Engine.forName(profile.getTtsEngine()); // rejects unknown engines
+    SubtitleFormat.forName(profile.getCaptionFormat());
+    if (profile.getCaptionMaxLineChars() < 10 || profile.getCaptionMaxLines() < 1 || profile.getCaptionMaxCueMillis() < 1000) {
+      throw new IllegalArgumentException("captionMaxLineChars must be at least 10, captionMaxLines at least 1 and captionMaxCueMillis at least 1000");
+    }
+  }
+
+  // env var > profile.<name>.<key> > profile.default.<key> > built-in default
+  static String value(Properties properties, String name, String key, String defaultValue) {
+    String env = System.getenv(envName(key));
+    if (env != null && !env.isEmpty()) {
+      return env.trim();
+    }
+    String value = properties.getProperty("profile." + name + "." + key);
+    if (value == null) {
+      value = properties.getProperty("profile.default." + key);
+    }
+    return value == null ? defaultValue : value.trim();
+  }
+
+  private static int intValue(Properties properties, String name, String key, int defaultValue) {
+    String value = value(properties, name, key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(key + " is not a number: " + value);
+    }
+  }
+
+  private static float floatValue(Properties properties, String name, String key, float defaultValue) {
+    String value = value(properties, name, key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Float.parseFloat(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(key + " is not a number: " + value);
+    }
+  }
+
+  private static boolean booleanValue(Properties properties, String name, String key, boolean defaultValue) {
+    String value = value(properties, name, key, null);
+    return value == null ? defaultValue : Boolean.parseBoolean(value);
+  }
+
+  // sttUseEnhanced -> ZOOM_TRANSLATOR_STT_USE_ENHANCED
+  static String envName(String key) {
+    StringBuilder sb = new StringBuilder("ZOOM_TRANSLATOR_");
+    for (char c : key.toCharArray()) {
+      if (Character.isUpperCase(c)) {
+        sb.append('_');
+      }
+      sb.append(Character.toUpperCase(c));
+    }
+    return sb.toString();
+  }
+
+  private static File locate() {
+    String path = System.getProperty("zoom.translator.config");
+    if (path == null || path.isEmpty()) {
+      path = System.getenv("ZOOM_TRANSLATOR_CONFIG");
+    }
+    if (path != null && !path.isEmpty()) {
+      return new File(path);
+    }
+    File local = new File(DEFAULT_FILE_NAME);
+    return local.isFile() ? local : null;
+  }
+}
@@ -0,0 +1,23 @@
+package com.litongjava.zoom.translator.device;
+
+import javax.sound.sampled.Mixer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of the {@link AudioDeviceCatalog}. Only the mixer identity and the probed capability are
+ * stored, so an entry can be written to and restored from the on-disk index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioDevice {
+  private String name;
+  private String description;
+  // true when the mixer offers a TargetDataLine for the capture format
+  private boolean captureSupported;
+  // resolved against the current AudioSystem mixers, the index only stores name and description
+  private Mixer.Info mixerInfo;
+}
@@ -0,0 +1,280 @@
+package com.litongjava.zoom.translator.device;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of capture-capable mixers, built once in the background.
+ * <p>
+ * Probing every mixer is the slow part, so the result is stored in ~/.zoom-translator/audio-devices.properties
+ * together with a fingerprint of the mixer list and the capture format. On the next start the index is
+ * reused as long as the fingerprint still matches. The mixer list is polled to pick up hot-plugged devices;
+ * listeners are notified with the new list whenever the fingerprint changes. Opening a line in another
+ * capture format re-probes the mixers for that format first.
+ */
+@Slf4j
+public class AudioDeviceCatalog {
+
+  private static final long POLL_INTERVAL_SECONDS = 5;
+
+  private volatile AudioFormat captureFormat;
+  private final File indexFile;
+  private final ScheduledExecutorService scheduler;
+  // failed when the scans so far failed, replaced once a later scan succeeds
+  private volatile CompletableFuture<List<AudioDevice>> firstScan = new CompletableFuture<>();
+  private final List<Consumer<List<AudioDevice>>> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile List<AudioDevice> devices = Collections.emptyList();
+  private volatile String fingerprint;
+
+  public AudioDeviceCatalog(AudioFormat captureFormat) {
+    this(captureFormat, new File(System.getProperty("user.home"), ".zoom-translator/audio-devices.properties"));
+  }
+
+  public AudioDeviceCatalog(AudioFormat captureFormat, File indexFile) {
+    this.captureFormat = captureFormat;
+    this.indexFile = indexFile;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "AudioDeviceCatalogThread");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public void start() {
+    scheduler.execute(this::refresh);
+    scheduler.scheduleWithFixedDelay(this::refresh, POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public void addListener(Consumer<List<AudioDevice>> listener) {
+    listeners.add(listener);
+  }
+
+  // Blocks until the first scan finished, then returns the current list
+  public List<AudioDevice> awaitDevices(long timeout, TimeUnit unit) throws LineUnavailableException {
+    try {
+      firstScan.get(timeout, unit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LineUnavailableException("Interrupted while waiting for audio device scan.");
+    } catch (ExecutionException | TimeoutException e) {
+      throw new LineUnavailableException("Audio device scan failed: " + e);
+    }
+    return devices;
+  }
+
+  public List<AudioDevice> getDevices() {
+    return devices;
+  }
+
+  // Device picked by the selector among devices probed for this format, null when nothing matches
+  public AudioDevice select(DeviceSelector selector, AudioFormat format, long timeout, TimeUnit unit) throws LineUnavailableException {
+    if (!format.matches(captureFormat)) {
+      retarget(format, timeout, unit);
+    }
+    AudioDevice device = selector.select(awaitDevices(timeout, unit));
+    if (device == null) {
+      log.warn("No audio device matches '" + selector.getNamePattern() + "'.");
+    }
+    return device;
+  }
+
+  /**
+   * Opens (without starting) a line on a device returned by {@link #select}. Falls back to the system default
+   * line when device is null, which usually means the microphone.
+   */
+  public TargetDataLine openLine(AudioDevice device, AudioFormat format) throws LineUnavailableException {
+    DataLine.Info captureLineInfo = new DataLine.Info(TargetDataLine.class, format);
+    if (!AudioSystem.isLineSupported(captureLineInfo)) {
+      log.error("Line for audio format not supported: " + format);
+      throw new LineUnavailableException("Audio format not supported.");
+    }
+    if (device != null && device.getMixerInfo() != null) {
+      log.info("Found suitable mixer and line: " + device.getName());
+      return (TargetDataLine) AudioSystem.getMixer(device.getMixerInfo()).getLine(captureLineInfo);
+    }
+    log.warn("Attempting to use the default capture line.");
+    return (TargetDataLine) AudioSystem.getLine(captureLineInfo);
+  }
+
+  // The captureSupported flags depend on the format, e.g. after a profile changed sampleRate
+  private void retarget(AudioFormat format, long timeout, TimeUnit unit) throws LineUnavailableException {
+    log.info("Capture format changed to " + format + ", probing audio devices again.");
+    captureFormat = format; // part of the fingerprint, so the next refresh probes again
+    try {
+      scheduler.submit(this::refresh).get(timeout, unit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LineUnavailableException("Interrupted while probing audio devices.");
+    } catch (ExecutionException | TimeoutException e) {
+      throw new LineUnavailableException("Audio device scan failed: " + e);
+    }
+  }
+
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private void refresh() {
+    try {
+      AudioFormat format = captureFormat;
+      Mixer.Info[] mixerInfos = AudioSystem.getMixerInfo();
+      String current = fingerprint(format, mixerInfos);
+      if (current.equals(fingerprint)) {
+        return;
+      }
+      boolean hotPlug = fingerprint != null;
+
+      long start = System.currentTimeMillis();
+      List<AudioDevice> scanned = loadIndex(current, mixerInfos);
+      if (scanned == null) {
+        scanned = probe(new DataLine.Info(TargetDataLine.class, format), mixerInfos);
+        saveIndex(current, scanned);
+        log.info("Probed " + mixerInfos.length + " audio mixers in " + (System.currentTimeMillis() - start) + " ms");
+      } else {
+        log.info("Loaded " + scanned.size() + " audio devices from index " + indexFile);
+      }
+
+      devices = Collections.unmodifiableList(scanned);
+      fingerprint = current;
+      if (!firstScan.complete(devices) && firstScan.isCompletedExceptionally()) {
+        firstScan = CompletableFuture.completedFuture(devices);
+      }
+      if (hotPlug) {
+        log.info("Audio device list changed, " + scanned.size() + " devices available.");
+        for (Consumer<List<AudioDevice>> listener : listeners) {
+          listener.accept(devices);
+        }
+      }
+    } catch (RuntimeException e) {
+      log.error("Audio device scan failed: " + e.getMessage(), e);
+      firstScan.completeExceptionally(e);
+    }
+  }
+
+  private List<AudioDevice> probe(DataLine.Info captureLineInfo, Mixer.Info[] mixerInfos) {
+    List<AudioDevice> result = new ArrayList<>(mixerInfos.length);
+    for (Mixer.Info mixerInfo : mixerInfos) {
+      Mixer mixer = AudioSystem.getMixer(mixerInfo);
+      if (mixer.getTargetLineInfo().length == 0) {
+        continue; // playback-only mixer
+      }
+      boolean supported = mixer.isLineSupported(captureLineInfo);
+      log.debug("Mixer: " + mixerInfo.getName() + ", Description: " + mixerInfo.getDescription() + ", capture format supported: " + supported);
+      result.add(new AudioDevice(text(mixerInfo.getName()), text(mixerInfo.getDescription()), supported, mixerInfo));
+    }
+    return result;
+  }
+
+  private List<AudioDevice> loadIndex(String expectedFingerprint, Mixer.Info[] mixerInfos) {
+    if (!indexFile.isFile()) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(indexFile)) {
+      properties.load(in);
+    } catch (IOException e) {
+      log.warn("Failed to read audio device index " + indexFile + ": " + e.getMessage());
+      return null;
+    }
+    if (!expectedFingerprint.equals(properties.getProperty("fingerprint"))) {
+      return null;
+    }
+    int count = Integer.parseInt(properties.getProperty("count", "0"));
+    List<AudioDevice> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String name = properties.getProperty("device." + i + ".name");
+      String description = properties.getProperty("device." + i + ".description");
+      boolean supported = Boolean.parseBoolean(properties.getProperty("device." + i + ".captureSupported"));
+      Mixer.Info mixerInfo = find(mixerInfos, name, description);
+      if (mixerInfo == null) {
+        return null; // index is stale despite the fingerprint, probe again
+      }
+      result.add(new AudioDevice(name, description, supported, mixerInfo));
+    }
+    return result;
+  }
+
+  private void saveIndex(String fingerprint, List<AudioDevice> scanned) {
+    Properties properties = new Properties();
+    properties.setProperty("fingerprint", fingerprint);
+    properties.setProperty("count", String.valueOf(scanned.size()));
+    for (int i = 0; i < scanned.size(); i++) {
+      AudioDevice device = scanned.get(i);
+      properties.setProperty("device." + i + ".name", device.getName());
+      properties.setProperty("device." + i + ".description", device.getDescription());
+      properties.setProperty("device." + i + ".captureSupported", String.valueOf(device.isCaptureSupported()));
+    }
+    File dir = indexFile.getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+      log.warn("Could not create directory " + dir);
+      return;
+    }
+    try (OutputStream out = new FileOutputStream(indexFile)) {
+      properties.store(out, "Audio device index, regenerated when the mixer list changes");
+    } catch (IOException e) {
+      log.warn("Failed to write audio device index " + indexFile + ": " + e.getMessage());
+    }
+  }
+
+  private static Mixer.Info find(Mixer.Info[] mixerInfos, String name, String description) {
+    for (Mixer.Info mixerInfo : mixerInfos) {
+      if (text(mixerInfo.getName()).equals(name) && text(mixerInfo.getDescription()).equals(description)) {
+        return mixerInfo;
+      }
+    }
+    return null;
+  }
+
+  // Some drivers report a null name or description
+  private static String text(String value) {
+    return value == null ? "" : value;
+  }
+
+  // Hash of the mixer identities plus the capture format, cheap enough to compute on every poll
+  private static String fingerprint(AudioFormat format, Mixer.Info[] mixerInfos) {
+    StringBuilder sb = new StringBuilder(format.toString());
+    for (Mixer.Info mixerInfo : mixerInfos) {
+      sb.append('\n').append(mixerInfo.getName()).append('|').append(mixerInfo.getVendor()).append('|').append(mixerInfo.getVersion()).append('|')
+          .append(mixerInfo.getDescription());
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.litongjava.zoom.translator.device;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import lombok.Data;
+
+/**
+ * Chooses a capture device by name pattern and capability. The pattern comes from the session profile and
+ * defaults to the loopback drivers we know about: "Stereo Mix" on Windows and BlackHole on macOS.
+ */
+@Data
+public class DeviceSelector {
+  public static final String DEFAULT_PATTERN = "Stereo Mix|BlackHole";
+
+  private final Pattern namePattern;
+  private final boolean requireCaptureSupport;
+
+  public DeviceSelector(String namePattern, boolean requireCaptureSupport) {
+    this.namePattern = Pattern.compile(namePattern, Pattern.CASE_INSENSITIVE);
+    this.requireCaptureSupport = requireCaptureSupport;
+  }
+
+  public boolean matches(AudioDevice device) {
+    if (requireCaptureSupport && !device.isCaptureSupported()) {
+      return false;
+    }
+    return namePattern.matcher(device.getName()).find();
+  }
+
+  // First matching device in catalog order, or null
+  public AudioDevice select(List<AudioDevice> devices) {
+    for (AudioDevice device : devices) {
+      if (matches(device)) {
+        return device;
+      }
+    }
+    return null;
+  }
+}
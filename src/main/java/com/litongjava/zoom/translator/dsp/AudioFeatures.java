@@ -0,0 +1,28 @@
+package com.litongjava.zoom.translator.dsp;
+
+import lombok.Data;
+
+/**
+ * Per-frame measurements of the captured (unprocessed) signal. One instance is reused for every frame, so
+ * listeners must copy what they need before handing it to another thread.
+ */
+@Data
+public class AudioFeatures {
+  // sample offset of the frame since the start of the capture
+  private long frameStartSample;
+  private int sampleCount;
+  private float rms;
+  private float rmsDbfs;
+  private float peak;
+  private int clippedSamples;
+  // fraction of neighbouring samples that change sign, high for noise and fricatives
+  private float zeroCrossingRate;
+  private float spectralCentroidHz;
+  // 1 for white noise, close to 0 for tonal/voiced sound
+  private float spectralFlatness;
+  private float spectralFlux;
+  // energy in 300-3400 Hz relative to the whole spectrum
+  private float speechBandRatio;
+  private float noiseFloorDbfs;
+  private boolean speech;
+}
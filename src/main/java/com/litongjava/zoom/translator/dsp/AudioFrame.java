@@ -0,0 +1,64 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Reusable primitive view of one 16-bit little-endian PCM chunk from {@code AudioRecorder}.
+ * <p>
+ * The arrays only grow, so a steady stream of equally sized chunks allocates nothing after the first one.
+ * The conversion loops are plain counted loops without calls or branches so C2 can unroll and vectorize them.
+ */
+public class AudioFrame {
+
+  private static final float SCALE = 1f / 32768f;
+
+  private short[] samples = new short[0];
+  private float[] floats = new float[0];
+  private int length;
+
+  public void readPcm16le(byte[] data, int byteCount) {
+    int n = byteCount >> 1;
+    ensureCapacity(n);
+    short[] s = samples;
+    for (int i = 0; i < n; i++) {
+      s[i] = (short) ((data[2 * i] & 0xff) | (data[2 * i + 1] << 8));
+    }
+    float[] f = floats;
+    for (int i = 0; i < n; i++) {
+      f[i] = s[i] * SCALE;
+    }
+    length = n;
+  }
+
+  // Writes the (possibly processed) float samples back over the original bytes
+  public void writePcm16le(byte[] data) {
+    int n = length;
+    short[] s = samples;
+    float[] f = floats;
+    for (int i = 0; i < n; i++) {
+      float v = Math.max(-1f, Math.min(f[i], 32767f * SCALE));
+      s[i] = (short) Math.round(v * 32768f);
+    }
+    for (int i = 0; i < n; i++) {
+      data[2 * i] = (byte) s[i];
+      data[2 * i + 1] = (byte) (s[i] >> 8);
+    }
+  }
+
+  public short[] getSamples() {
+    return samples;
+  }
+
+  public float[] getFloats() {
+    return floats;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  private void ensureCapacity(int n) {
+    if (samples.length < n) {
+      samples = new short[n];
+      floats = new float[n];
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.litongjava.zoom.translator.dsp;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs on the recording thread for every chunk: decode to primitives, extract features, detect voice and,
+ * if enabled, apply noise suppression and AGC before the chunk is queued for STT.
+ * <p>
+ * Listeners receive the shared {@link AudioFeatures} instance and must copy values before leaving the
+ * calling thread. The time spent per frame is measured so the cost of the stage is visible in the logs.
+ */
+@Slf4j
+public class AudioProcessingPipeline {
+
+  private final AudioFrame frame = new AudioFrame();
+  private final AudioFeatures features = new AudioFeatures();
+  private final FeatureExtractor extractor;
+  private final NoiseFloorEstimator noiseFloor = new NoiseFloorEstimator();
+  private final VoiceActivityDetector vad = new VoiceActivityDetector();
+  private final NoiseSuppressor noiseSuppressor;
+  private final AutomaticGainControl agc;
+  private final List<Consumer<AudioFeatures>> listeners = new CopyOnWriteArrayList<>();
+
+  private long samplePosition;
+  private long frames;
+  private long totalNanos;
+  private long maxNanos;
+
+  public AudioProcessingPipeline(float sampleRate, boolean noiseSuppression, boolean automaticGainControl) {
+    this.extractor = new FeatureExtractor(sampleRate);
+    this.noiseSuppressor = noiseSuppression ? new NoiseSuppressor() : null;
+    this.agc = automaticGainControl ? new AutomaticGainControl() : null;
+  }
+
+  public void addListener(Consumer<AudioFeatures> listener) {
+    listeners.add(listener);
+  }
+
+  // Processes the first byteCount bytes of chunk in place
+  public void process(byte[] chunk, int byteCount) {
+    long start = System.nanoTime();
+    frame.readPcm16le(chunk, byteCount);
+    features.setFrameStartSample(samplePosition);
+    extractor.extract(frame, features);
+    // features still holds the previous frame's VAD decision here
+    features.setNoiseFloorDbfs(noiseFloor.update(features.getRmsDbfs(), features.isSpeech()));
+    features.setSpeech(vad.update(features));
+
+    if (noiseSuppressor != null || agc != null) {
+      if (noiseSuppressor != null) {
+        noiseSuppressor.process(frame, features);
+      }
+      if (agc != null) {
+        agc.process(frame, features);
+      }
+      frame.writePcm16le(chunk);
+    }
+    samplePosition += frame.getLength();
+
+    long elapsed = System.nanoTime() - start;
+    frames++;
+    totalNanos += elapsed;
+    maxNanos = Math.max(maxNanos, elapsed);
+
+    for (Consumer<AudioFeatures> listener : listeners) {
+      listener.accept(features);
+    }
+  }
+
+  // VAD decision for the last processed chunk
+  public boolean isSpeech() {
+    return features.isSpeech();
+  }
+
+  public void logStats() {
+    if (frames > 0) {
+      log.info("Audio processing: " + frames + " frames, avg " + (totalNanos / frames / 1000) + " us/frame, max " + (maxNanos / 1000) + " us/frame");
+    }
+  }
+
+  public void reset() {
+    samplePosition = 0;
+    frames = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+  }
+}
@@ -0,0 +1,42 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Brings speech towards {@code targetDbfs}. The gain only adapts on speech frames so pauses are not pumped
+ * up, drops quickly (attack) and recovers slowly (release), and is capped so the peak stays below full scale.
+ */
+public class AutomaticGainControl {
+
+  private static final float ATTACK = 0.5f;
+  private static final float RELEASE = 0.05f;
+  private static final float PEAK_LIMIT = 0.95f;
+
+  private final float targetRms;
+  private final float maxGain;
+  private float gain = 1f;
+
+  public AutomaticGainControl() {
+    this(-20f, 18f);
+  }
+
+  public AutomaticGainControl(float targetDbfs, float maxGainDb) {
+    this.targetRms = FeatureExtractor.fromDb(targetDbfs);
+    this.maxGain = FeatureExtractor.fromDb(maxGainDb);
+  }
+
+  public void process(AudioFrame frame, AudioFeatures features) {
+    float target = gain;
+    if (features.isSpeech() && features.getRms() > 0) {
+      float desired = Math.min(maxGain, targetRms / features.getRms());
+      target = gain + (desired < gain ? ATTACK : RELEASE) * (desired - gain);
+    }
+    if (features.getPeak() * target > PEAK_LIMIT) {
+      target = PEAK_LIMIT / features.getPeak();
+    }
+    GainRamp.apply(frame.getFloats(), frame.getLength(), gain, target);
+    gain = target;
+  }
+
+  public float getGain() {
+    return gain;
+  }
+}
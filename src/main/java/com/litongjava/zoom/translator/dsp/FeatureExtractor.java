@@ -0,0 +1,164 @@
+package com.litongjava.zoom.translator.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Computes level and spectral features of an {@link AudioFrame}.
+ * <p>
+ * The spectrum is the average power of non-overlapping Hann windowed blocks of {@link #FFT_SIZE} samples
+ * (three blocks for a 100 ms frame at 16 kHz). All work arrays are allocated once. Float reductions use
+ * four independent accumulators: Java keeps the order of floating point additions, so a single accumulator
+ * would serialize the loop on the add latency.
+ */
+public class FeatureExtractor {
+
+  public static final int FFT_SIZE = 512;
+  private static final int BINS = FFT_SIZE / 2 + 1;
+  private static final float CLIP_LEVEL = 32767f / 32768f;
+  private static final float EPSILON = 1e-10f;
+
+  private final float sampleRate;
+  private final float[] window = new float[FFT_SIZE];
+  private final float[] cos = new float[FFT_SIZE / 2];
+  private final float[] sin = new float[FFT_SIZE / 2];
+  private final int[] bitReverse = new int[FFT_SIZE];
+  private final float[] re = new float[FFT_SIZE];
+  private final float[] im = new float[FFT_SIZE];
+  private final float[] power = new float[BINS];
+  private final float[] magnitude = new float[BINS];
+  private final float[] previousMagnitude = new float[BINS];
+  private final int speechLowBin;
+  private final int speechHighBin;
+
+  public FeatureExtractor(float sampleRate) {
+    this.sampleRate = sampleRate;
+    for (int i = 0; i < FFT_SIZE; i++) {
+      window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
+    }
+    for (int i = 0; i < FFT_SIZE / 2; i++) {
+      cos[i] = (float) Math.cos(2 * Math.PI * i / FFT_SIZE);
+      sin[i] = (float) -Math.sin(2 * Math.PI * i / FFT_SIZE);
+    }
+    int bits = Integer.numberOfTrailingZeros(FFT_SIZE);
+    for (int i = 0; i < FFT_SIZE; i++) {
+      bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+    speechLowBin = Math.max(1, Math.round(300f * FFT_SIZE / sampleRate));
+    speechHighBin = Math.min(BINS - 1, Math.round(3400f * FFT_SIZE / sampleRate));
+  }
+
+  public void extract(AudioFrame frame, AudioFeatures features) {
+    float[] x = frame.getFloats();
+    int n = frame.getLength();
+    features.setSampleCount(n);
+    if (n == 0) {
+      return;
+    }
+
+    float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (; i + 3 < n; i += 4) {
+      s0 += x[i] * x[i];
+      s1 += x[i + 1] * x[i + 1];
+      s2 += x[i + 2] * x[i + 2];
+      s3 += x[i + 3] * x[i + 3];
+    }
+    for (; i < n; i++) {
+      s0 += x[i] * x[i];
+    }
+    float rms = (float) Math.sqrt((s0 + s1 + s2 + s3) / n);
+
+    float peak = 0;
+    int clipped = 0;
+    int crossings = 0;
+    for (i = 0; i < n; i++) {
+      float a = Math.abs(x[i]);
+      peak = Math.max(peak, a);
+      clipped += a >= CLIP_LEVEL ? 1 : 0;
+    }
+    for (i = 1; i < n; i++) {
+      crossings += (x[i - 1] < 0) != (x[i] < 0) ? 1 : 0;
+    }
+
+    features.setRms(rms);
+    features.setRmsDbfs(toDb(rms));
+    features.setPeak(peak);
+    features.setClippedSamples(clipped);
+    features.setZeroCrossingRate(n > 1 ? (float) crossings / (n - 1) : 0);
+    spectrum(x, n, features);
+  }
+
+  private void spectrum(float[] x, int n, AudioFeatures features) {
+    int blocks = n / FFT_SIZE;
+    if (blocks == 0) {
+      features.setSpectralCentroidHz(0);
+      features.setSpectralFlatness(1);
+      features.setSpectralFlux(0);
+      features.setSpeechBandRatio(0);
+      return;
+    }
+    Arrays.fill(power, 0f);
+    for (int b = 0; b < blocks; b++) {
+      int offset = b * FFT_SIZE;
+      for (int i = 0; i < FFT_SIZE; i++) {
+        re[bitReverse[i]] = x[offset + i] * window[i];
+        im[i] = 0f;
+      }
+      fft();
+      for (int k = 0; k < BINS; k++) {
+        power[k] += re[k] * re[k] + im[k] * im[k];
+      }
+    }
+
+    float total = 0, weighted = 0, logSum = 0, speechBand = 0, flux = 0;
+    for (int k = 1; k < BINS; k++) {
+      float p = power[k] / blocks + EPSILON;
+      total += p;
+      weighted += p * k;
+      logSum += (float) Math.log(p);
+      float m = (float) Math.sqrt(p);
+      flux += Math.max(0f, m - previousMagnitude[k]);
+      magnitude[k] = m;
+    }
+    for (int k = speechLowBin; k <= speechHighBin; k++) {
+      speechBand += power[k] / blocks;
+    }
+    System.arraycopy(magnitude, 0, previousMagnitude, 0, BINS);
+
+    int bins = BINS - 1;
+    features.setSpectralCentroidHz(weighted / total * sampleRate / FFT_SIZE);
+    features.setSpectralFlatness((float) Math.exp(logSum / bins) / (total / bins));
+    features.setSpectralFlux(flux / bins);
+    features.setSpeechBandRatio(speechBand / total);
+  }
+
+  // In-place iterative radix-2 FFT, input already in bit-reversed order
+  private void fft() {
+    for (int size = 2; size <= FFT_SIZE; size <<= 1) {
+      int half = size >> 1;
+      int step = FFT_SIZE / size;
+      for (int start = 0; start < FFT_SIZE; start += size) {
+        for (int j = 0; j < half; j++) {
+          float wr = cos[j * step];
+          float wi = sin[j * step];
+          int a = start + j;
+          int b = a + half;
+          float tr = re[b] * wr - im[b] * wi;
+          float ti = re[b] * wi + im[b] * wr;
+          re[b] = re[a] - tr;
+          im[b] = im[a] - ti;
+          re[a] += tr;
+          im[a] += ti;
+        }
+      }
+    }
+  }
+
+  public static float toDb(float amplitude) {
+    return (float) (20 * Math.log10(amplitude + EPSILON));
+  }
+
+  public static float fromDb(float db) {
+    return (float) Math.pow(10, db / 20);
+  }
+}
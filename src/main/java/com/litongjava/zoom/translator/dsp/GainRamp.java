@@ -0,0 +1,21 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Applies a gain that moves linearly from the previous frame's value to the new one, so gain changes at
+ * frame boundaries do not click.
+ */
+final class GainRamp {
+
+  private GainRamp() {
+  }
+
+  static void apply(float[] x, int n, float from, float to) {
+    if (from == 1f && to == 1f) {
+      return;
+    }
+    float step = (to - from) / n;
+    for (int i = 0; i < n; i++) {
+      x[i] *= from + step * i;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Tracks the background level in dBFS: drops immediately to quieter frames and creeps up slowly, so a louder
+ * room pulls the estimate up after a few seconds. While the VAD reports speech it creeps up far slower, so a
+ * long utterance does not become the floor; steady noise mistaken for speech still catches up eventually.
+ */
+public class NoiseFloorEstimator {
+
+  private static final float INITIAL_FLOOR_DB = -60f;
+  private static final float RISE_DB_PER_FRAME = 0.2f;
+  private static final float RISE_DB_PER_SPEECH_FRAME = 0.01f;
+  private static final float MIN_FLOOR_DB = -90f;
+
+  private float floorDb = INITIAL_FLOOR_DB;
+
+  // speech is the VAD decision for the previous frame, the current one needs this floor first
+  public float update(float rmsDb, boolean speech) {
+    if (rmsDb < floorDb) {
+      floorDb = Math.max(MIN_FLOOR_DB, rmsDb);
+    } else {
+      floorDb = Math.min(rmsDb, floorDb + (speech ? RISE_DB_PER_SPEECH_FRAME : RISE_DB_PER_FRAME));
+    }
+    return floorDb;
+  }
+
+  public float getFloorDb() {
+    return floorDb;
+  }
+}
@@ -0,0 +1,29 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Downward expander: frames within {@code marginDb} of the noise floor are attenuated by
+ * {@code attenuationDb}, louder frames pass unchanged. Removes the steady hiss and fan noise between
+ * utterances that otherwise produces spurious short transcripts.
+ */
+public class NoiseSuppressor {
+
+  private final float marginDb;
+  private final float attenuation;
+  private float gain = 1f;
+
+  public NoiseSuppressor() {
+    this(6f, -15f);
+  }
+
+  public NoiseSuppressor(float marginDb, float attenuationDb) {
+    this.marginDb = marginDb;
+    this.attenuation = FeatureExtractor.fromDb(attenuationDb);
+  }
+
+  public void process(AudioFrame frame, AudioFeatures features) {
+    boolean noise = !features.isSpeech() && features.getRmsDbfs() < features.getNoiseFloorDbfs() + marginDb;
+    float target = noise ? attenuation : 1f;
+    GainRamp.apply(frame.getFloats(), frame.getLength(), gain, target);
+    gain = target;
+  }
+}
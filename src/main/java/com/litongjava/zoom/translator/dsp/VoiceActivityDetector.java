@@ -0,0 +1,35 @@
+package com.litongjava.zoom.translator.dsp;
+
+/**
+ * Energy based VAD: a frame is speech when it is clearly above the noise floor and its energy sits mostly in
+ * the speech band. A short hangover keeps word endings and pauses between words marked as speech.
+ */
+public class VoiceActivityDetector {
+
+  private final float thresholdDb;
+  private final int hangoverFrames;
+  private int remainingHangover;
+
+  public VoiceActivityDetector() {
+    this(9f, 3);
+  }
+
+  public VoiceActivityDetector(float thresholdDb, int hangoverFrames) {
+    this.thresholdDb = thresholdDb;
+    this.hangoverFrames = hangoverFrames;
+  }
+
+  public boolean update(AudioFeatures features) {
+    boolean loud = features.getRmsDbfs() > features.getNoiseFloorDbfs() + thresholdDb;
+    boolean voiced = features.getSpeechBandRatio() > 0.5f || features.getSpectralFlatness() < 0.3f;
+    if (loud && voiced) {
+      remainingHangover = hangoverFrames;
+      return true;
+    }
+    if (remainingHangover > 0) {
+      remainingHangover--;
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,282 @@
+package com.litongjava.zoom.translator.grpc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A set of channels to one endpoint. Every call goes to the channel with the fewest active calls; a new
+ * channel is opened only when all of them reached {@link ChannelPoolConfig#getMaxConcurrentStreamsPerChannel()}
+ * and the pool is below {@link ChannelPoolConfig#getMaxChannels()}.
+ * <p>
+ * Clients get a {@link #lease()} rather than the pool itself, so shutting a client down does not close
+ * channels other sessions are still using.
+ */
+@Slf4j
+public class ChannelPool extends ManagedChannel {
+
+  private final String endpoint;
+  private final ChannelPoolConfig config;
+  private final ChannelPoolMetrics metrics = new ChannelPoolMetrics();
+  private final List<PooledChannel> channels = new CopyOnWriteArrayList<>();
+  private volatile boolean shutdown;
+
+  public ChannelPool(String endpoint, ChannelPoolConfig config) {
+    this.endpoint = endpoint;
+    this.config = config;
+    for (int i = 0; i < Math.max(1, config.getInitialChannels()); i++) {
+      channels.add(openChannel());
+    }
+  }
+
+  public ChannelPoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public ManagedChannel lease() {
+    return new Lease();
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    // pick() already counted the call, the slot is given back exactly once: on close, or on cancel before start
+    final PooledChannel channel = pick();
+    final AtomicBoolean released = new AtomicBoolean();
+    final AtomicBoolean started = new AtomicBoolean();
+    ClientCall<ReqT, RespT> call;
+    try {
+      call = channel.channel.newCall(method, callOptions);
+    } catch (RuntimeException e) {
+      channel.active.decrementAndGet();
+      throw e;
+    }
+    return new SimpleForwardingClientCall<ReqT, RespT>(call) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        started.set(true);
+        metrics.callStarted();
+        super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            if (released.compareAndSet(false, true)) {
+              channel.active.decrementAndGet();
+            }
+            // CANCELLED is us dropping the losing hedge attempt, not a failed call
+            metrics.callClosed(status.isOk() || status.getCode() == Status.Code.CANCELLED);
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      }
+
+      @Override
+      public void cancel(String message, Throwable cause) {
+        if (!started.get() && released.compareAndSet(false, true)) {
+          channel.active.decrementAndGet();
+        }
+        super.cancel(message, cause);
+      }
+    };
+  }
+
+  @Override
+  public String authority() {
+    return channels.get(0).channel.authority();
+  }
+
+  // READY as soon as one channel is, requestConnection starts connecting all idle channels
+  @Override
+  public ConnectivityState getState(boolean requestConnection) {
+    ConnectivityState state = null;
+    for (PooledChannel channel : channels) {
+      ConnectivityState channelState = channel.channel.getState(requestConnection);
+      if (channelState == ConnectivityState.READY) {
+        return channelState;
+      }
+      if (state == null) {
+        state = channelState;
+      }
+    }
+    return state;
+  }
+
+  // Connects (DNS, TLS) without sending a call, so the first real call does not pay for the handshake
+  public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (getState(true) != ConnectivityState.READY) {
+      if (shutdown || System.nanoTime() >= deadline) {
+        return false;
+      }
+      TimeUnit.MILLISECONDS.sleep(20);
+    }
+    return true;
+  }
+
+  // Reserves a stream slot on the returned channel, so concurrent picks cannot overshoot the per-channel limit
+  private PooledChannel pick() {
+    while (true) {
+      PooledChannel best = null;
+      for (PooledChannel channel : channels) {
+        if (best == null || channel.active.get() < best.active.get()) {
+          best = channel;
+        }
+      }
+      int active = best.active.get();
+      if (active < config.getMaxConcurrentStreamsPerChannel()) {
+        if (best.active.compareAndSet(active, active + 1)) {
+          return best;
+        }
+        continue; // another call took the slot, look again
+      }
+      synchronized (channels) {
+        if (channels.size() < config.getMaxChannels()) {
+          PooledChannel channel = openChannel();
+          channel.active.incrementAndGet();
+          channels.add(channel);
+          log.info("All channels to " + endpoint + " at stream limit, opened channel #" + channels.size());
+          return channel;
+        }
+      }
+      // pool exhausted, gRPC queues the stream on the least loaded connection
+      best.active.incrementAndGet();
+      return best;
+    }
+  }
+
+  private PooledChannel openChannel() {
+    ManagedChannel channel = ManagedChannelBuilder.forTarget(endpoint)
+        //
+        .keepAliveTime(config.getKeepAliveTimeSeconds(), TimeUnit.SECONDS)
+        //
+        .keepAliveTimeout(config.getKeepAliveTimeoutSeconds(), TimeUnit.SECONDS)
+        //
+        .keepAliveWithoutCalls(config.isKeepAliveWithoutCalls())
+        //
+        .idleTimeout(config.getIdleTimeoutMinutes(), TimeUnit.MINUTES)
+        //
+        .maxInboundMessageSize(Integer.MAX_VALUE)
+        //
+        .build();
+    metrics.channelOpened();
+    return new PooledChannel(channel);
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    shutdown = true;
+    log.info("Shutting down channel pool " + endpoint + ": " + metrics);
+    for (PooledChannel channel : channels) {
+      channel.channel.shutdown();
+    }
+    return this;
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    shutdown = true;
+    for (PooledChannel channel : channels) {
+      channel.channel.shutdownNow();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    for (PooledChannel channel : channels) {
+      if (!channel.channel.isTerminated()) {
+        return false;
+      }
+    }
+    return shutdown;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (PooledChannel channel : channels) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0 || !channel.channel.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class PooledChannel {
+    private final ManagedChannel channel;
+    private final AtomicInteger active = new AtomicInteger();
+
+    private PooledChannel(ManagedChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  // View handed to a client; shutting it down only detaches that client from the pool
+  private class Lease extends ManagedChannel {
+    private volatile boolean released;
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+      return ChannelPool.this.newCall(method, callOptions);
+    }
+
+    @Override
+    public String authority() {
+      return ChannelPool.this.authority();
+    }
+
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+      return ChannelPool.this.getState(requestConnection);
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+      released = true;
+      return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+      released = true;
+      return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return released || ChannelPool.this.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return isShutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.litongjava.zoom.translator.grpc;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Transport settings shared by every Google client the app creates. Values can be overridden with
+ * zoom.translator.grpc.* system properties, see {@link #fromSystemProperties()}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChannelPoolConfig {
+  // channels opened eagerly per endpoint
+  @Builder.Default
+  private int initialChannels = 1;
+  // upper bound per endpoint, new channels are only opened when every channel is at its stream limit
+  @Builder.Default
+  private int maxChannels = 4;
+  // Google front ends allow 100 concurrent streams per connection, stay below that
+  @Builder.Default
+  private int maxConcurrentStreamsPerChannel = 50;
+  @Builder.Default
+  private long keepAliveTimeSeconds = 30;
+  @Builder.Default
+  private long keepAliveTimeoutSeconds = 10;
+  // keep the connection warm between sessions so Start does not pay for a new handshake
+  @Builder.Default
+  private boolean keepAliveWithoutCalls = true;
+  @Builder.Default
+  private long idleTimeoutMinutes = 30;
+  // deadline of unary calls such as translateText
+  @Builder.Default
+  private long rpcDeadlineMillis = 5000;
+  // send a second translateText if the first has not answered after this delay. Off by default: a hedge
+  // is billed like any other call, so enable it (e.g. 800) only when tail latency matters more than cost
+  @Builder.Default
+  private long hedgeDelayMillis = 0;
+
+  public static ChannelPoolConfig fromSystemProperties() {
+    ChannelPoolConfig defaults = ChannelPoolConfig.builder().build();
+    return ChannelPoolConfig.builder()
+        //
+        .initialChannels(Integer.getInteger("zoom.translator.grpc.initialChannels", defaults.initialChannels))
+        .maxChannels(Integer.getInteger("zoom.translator.grpc.maxChannels", defaults.maxChannels))
+        .maxConcurrentStreamsPerChannel(Integer.getInteger("zoom.translator.grpc.maxConcurrentStreamsPerChannel", defaults.maxConcurrentStreamsPerChannel))
+        .keepAliveTimeSeconds(Long.getLong("zoom.translator.grpc.keepAliveTimeSeconds", defaults.keepAliveTimeSeconds))
+        .keepAliveTimeoutSeconds(Long.getLong("zoom.translator.grpc.keepAliveTimeoutSeconds", defaults.keepAliveTimeoutSeconds))
+        .keepAliveWithoutCalls(Boolean.parseBoolean(System.getProperty("zoom.translator.grpc.keepAliveWithoutCalls", String.valueOf(defaults.keepAliveWithoutCalls))))
+        .idleTimeoutMinutes(Long.getLong("zoom.translator.grpc.idleTimeoutMinutes", defaults.idleTimeoutMinutes))
+        .rpcDeadlineMillis(Long.getLong("zoom.translator.grpc.rpcDeadlineMillis", defaults.rpcDeadlineMillis))
+        .hedgeDelayMillis(Long.getLong("zoom.translator.grpc.hedgeDelayMillis", defaults.hedgeDelayMillis))
+        //
+        .build();
+  }
+}
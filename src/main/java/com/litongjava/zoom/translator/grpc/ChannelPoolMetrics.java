@@ -0,0 +1,79 @@
+package com.litongjava.zoom.translator.grpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one {@link ChannelPool}. Cheap enough to update on every call.
+ */
+public class ChannelPoolMetrics {
+  private final LongAdder callsStarted = new LongAdder();
+  private final LongAdder callsFailed = new LongAdder();
+  private final LongAdder hedgedCalls = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private final AtomicInteger channelsOpened = new AtomicInteger();
+  private final AtomicInteger activeCalls = new AtomicInteger();
+  private final AtomicInteger peakActiveCalls = new AtomicInteger();
+
+  void callStarted() {
+    callsStarted.increment();
+    int active = activeCalls.incrementAndGet();
+    int peak;
+    while (active > (peak = peakActiveCalls.get()) && !peakActiveCalls.compareAndSet(peak, active)) {
+      // retry
+    }
+  }
+
+  void callClosed(boolean ok) {
+    activeCalls.decrementAndGet();
+    if (!ok) {
+      callsFailed.increment();
+    }
+  }
+
+  void channelOpened() {
+    channelsOpened.incrementAndGet();
+  }
+
+  public void hedgeSent() {
+    hedgedCalls.increment();
+  }
+
+  public void hedgeWon() {
+    hedgeWins.increment();
+  }
+
+  public long getCallsStarted() {
+    return callsStarted.sum();
+  }
+
+  public long getCallsFailed() {
+    return callsFailed.sum();
+  }
+
+  public long getHedgedCalls() {
+    return hedgedCalls.sum();
+  }
+
+  public long getHedgeWins() {
+    return hedgeWins.sum();
+  }
+
+  public int getChannelsOpened() {
+    return channelsOpened.get();
+  }
+
+  public int getActiveCalls() {
+    return activeCalls.get();
+  }
+
+  public int getPeakActiveCalls() {
+    return peakActiveCalls.get();
+  }
+
+  @Override
+  public String toString() {
+    return "channels=" + getChannelsOpened() + ", calls=" + getCallsStarted() + ", failed=" + getCallsFailed() + ", active=" + getActiveCalls() + ", peakActive="
+        + getPeakActiveCalls() + ", hedged=" + getHedgedCalls() + ", hedgeWins=" + getHedgeWins();
+  }
+}
@@ -0,0 +1,54 @@
+package com.litongjava.zoom.translator.grpc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One {@link ChannelPool} per Google endpoint, shared by all services and sessions of the process. Create
+ * it once at startup and pass it to {@code SpeechToTextService} / {@code TranslationService}.
+ */
+@Slf4j
+public class GoogleChannelPools {
+
+  private final ChannelPoolConfig config;
+  private final Map<String, ChannelPool> pools = new ConcurrentHashMap<>();
+
+  public GoogleChannelPools(ChannelPoolConfig config) {
+    this.config = config;
+  }
+
+  public ChannelPoolConfig getConfig() {
+    return config;
+  }
+
+  public ChannelPool pool(String endpoint) {
+    return pools.computeIfAbsent(endpoint, e -> new ChannelPool(e, config));
+  }
+
+  // Settings builders take this in setTransportChannelProvider; credentials are still applied per call
+  public TransportChannelProvider channelProvider(String endpoint) {
+    return FixedTransportChannelProvider.create(GrpcTransportChannel.create(pool(endpoint).lease()));
+  }
+
+  public ChannelPoolMetrics metrics(String endpoint) {
+    return pool(endpoint).getMetrics();
+  }
+
+  public void logMetrics() {
+    for (ChannelPool pool : pools.values()) {
+      log.info("Channel pool " + pool.getEndpoint() + ": " + pool.getMetrics());
+    }
+  }
+
+  public void shutdown() {
+    for (ChannelPool pool : pools.values()) {
+      pool.shutdown();
+    }
+  }
+}
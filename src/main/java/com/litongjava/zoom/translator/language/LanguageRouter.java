@@ -0,0 +1,59 @@
+package com.litongjava.zoom.translator.language;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.litongjava.zoom.translator.config.SessionProfile;
+
+/**
+ * Picks the translation pair for an utterance from the language Speech detected for it.
+ * <p>
+ * The target is taken from the profile's translationRoutes ({@code zh:en,es:en}, keyed by base language)
+ * and defaults to translationTargetLanguage. Utterances already in their target language get no route, so
+ * they are shown as is and cost no translateText call.
+ */
+public class LanguageRouter {
+
+  private final String defaultSource;
+  private final String defaultTarget;
+  private final Map<String, String> routes = new HashMap<>();
+
+  public LanguageRouter(SessionProfile profile) {
+    this.defaultSource = profile.getTranslationSourceLanguage();
+    this.defaultTarget = profile.getTranslationTargetLanguage();
+    String configured = profile.getTranslationRoutes();
+    if (configured != null && !configured.trim().isEmpty()) {
+      for (String route : configured.split(",")) {
+        String[] parts = route.trim().split(":");
+        if (parts.length != 2) {
+          throw new IllegalArgumentException("Invalid translation route '" + route + "', expected source:target");
+        }
+        routes.put(baseLanguage(parts[0]), parts[1].trim());
+      }
+    }
+  }
+
+  // Returns null when the text needs no translation
+  public TranslationRoute route(String detectedLanguage) {
+    String source = detectedLanguage == null || detectedLanguage.isEmpty() ? defaultSource : baseLanguage(detectedLanguage);
+    String target = routes.containsKey(source) ? routes.get(source) : defaultTarget;
+    if (source.equals(baseLanguage(target))) {
+      return null;
+    }
+    return new TranslationRoute(source, target);
+  }
+
+  /**
+   * Reduces a recognizer language code to the code Translation expects as source: "en-US" -> "en",
+   * "cmn-Hans-CN" -> "zh". Script and region do not matter for the source side.
+   */
+  public static String baseLanguage(String languageCode) {
+    String base = languageCode.trim().toLowerCase(Locale.ROOT);
+    int dash = base.indexOf('-');
+    if (dash > 0) {
+      base = base.substring(0, dash);
+    }
+    return "cmn".equals(base) ? "zh" : base;
+  }
+}
@@ -0,0 +1,11 @@
+package com.litongjava.zoom.translator.language;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TranslationRoute {
+  private String sourceLanguage;
+  private String targetLanguage;
+}
@@ -0,0 +1,24 @@
+package com.litongjava.zoom.translator.quota;
+
+/**
+ * Steps a session takes, in order, when quota runs short. Each level includes the ones before it.
+ */
+public enum DegradationLevel {
+  NORMAL,
+  // stop streaming silence to Speech; streaming only asks for final results, so there are no interim
+  // results to drop and silence is the cheapest audio to give up
+  SKIP_SILENCE,
+  // fewer, larger translateText calls
+  WIDEN_BATCHES,
+  // utterances in the session's low priority languages are shown untranslated
+  PAUSE_LOW_PRIORITY_LANGUAGES;
+
+  public boolean atLeast(DegradationLevel other) {
+    return ordinal() >= other.ordinal();
+  }
+
+  DegradationLevel shift(int steps) {
+    DegradationLevel[] levels = values();
+    return levels[Math.max(0, Math.min(levels.length - 1, ordinal() + steps))];
+  }
+}
@@ -0,0 +1,32 @@
+package com.litongjava.zoom.translator.quota;
+
+import java.util.Locale;
+
+/**
+ * Session classes. Lower classes may only use the project budget while a share of it is still left for the
+ * classes above them, and degrade one step earlier.
+ */
+public enum Priority {
+  PRESENTER(0, -1),
+  AUDIENCE(0.2, 0),
+  // batch jobs: not capped per session, the project reserve keeps them out of the live sessions' way
+  BACKGROUND(0.5, 1);
+
+  // share of each project bucket this class may not touch
+  final double reserveFraction;
+  // added to the scheduler's degradation level
+  final int levelOffset;
+
+  Priority(double reserveFraction, int levelOffset) {
+    this.reserveFraction = reserveFraction;
+    this.levelOffset = levelOffset;
+  }
+
+  public static Priority forName(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown sessionPriority: " + name);
+    }
+  }
+}
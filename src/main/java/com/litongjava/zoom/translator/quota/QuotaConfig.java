@@ -0,0 +1,97 @@
+package com.litongjava.zoom.translator.quota;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quota budgets per Google Cloud project and per live session. Values can be overridden with
+ * zoom.translator.quota.* system properties, see {@link #fromSystemProperties()}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaConfig {
+  // project budgets, keep them at or below the quotas shown in the Cloud console
+  @Builder.Default
+  private long speechAudioSecondsPerMinute = 3600;
+  @Builder.Default
+  private long translationCharactersPerMinute = 6_000_000;
+  @Builder.Default
+  private long translationRequestsPerMinute = 6000;
+
+  // per live session; a realtime stream needs 60 audio seconds per minute
+  @Builder.Default
+  private long sessionSpeechAudioSecondsPerMinute = 75;
+  @Builder.Default
+  private long sessionTranslationCharactersPerMinute = 30_000;
+  @Builder.Default
+  private long sessionTranslationRequestsPerMinute = 300;
+
+  // project bucket fill ratios below which the next degradation level starts
+  @Builder.Default
+  private double skipSilenceBelow = 0.5;
+  @Builder.Default
+  private double widenBatchesBelow = 0.3;
+  @Builder.Default
+  private double pauseLanguagesBelow = 0.15;
+  // a RESOURCE_EXHAUSTED answer raises the level by one step for this long
+  @Builder.Default
+  private long quotaErrorCooldownSeconds = 60;
+
+  // WIDEN_BATCHES multiplies the translation batch size and waits at least this long for a batch to fill
+  @Builder.Default
+  private int widenedBatchFactor = 4;
+  @Builder.Default
+  private int widenedBatchDelayMillis = 1000;
+  // how long a live translation waits for quota before the text is shown untranslated
+  @Builder.Default
+  private long translationWaitMillis = 2000;
+
+  public static QuotaConfig fromSystemProperties() {
+    QuotaConfig defaults = QuotaConfig.builder().build();
+    return QuotaConfig.builder()
+        //
+        .speechAudioSecondsPerMinute(Long.getLong("zoom.translator.quota.speechAudioSecondsPerMinute", defaults.speechAudioSecondsPerMinute))
+        .translationCharactersPerMinute(Long.getLong("zoom.translator.quota.translationCharactersPerMinute", defaults.translationCharactersPerMinute))
+        .translationRequestsPerMinute(Long.getLong("zoom.translator.quota.translationRequestsPerMinute", defaults.translationRequestsPerMinute))
+        .sessionSpeechAudioSecondsPerMinute(Long.getLong("zoom.translator.quota.sessionSpeechAudioSecondsPerMinute", defaults.sessionSpeechAudioSecondsPerMinute))
+        .sessionTranslationCharactersPerMinute(
+            Long.getLong("zoom.translator.quota.sessionTranslationCharactersPerMinute", defaults.sessionTranslationCharactersPerMinute))
+        .sessionTranslationRequestsPerMinute(
+            Long.getLong("zoom.translator.quota.sessionTranslationRequestsPerMinute", defaults.sessionTranslationRequestsPerMinute))
+        .skipSilenceBelow(Double.parseDouble(System.getProperty("zoom.translator.quota.skipSilenceBelow", String.valueOf(defaults.skipSilenceBelow))))
+        .widenBatchesBelow(Double.parseDouble(System.getProperty("zoom.translator.quota.widenBatchesBelow", String.valueOf(defaults.widenBatchesBelow))))
+        .pauseLanguagesBelow(Double.parseDouble(System.getProperty("zoom.translator.quota.pauseLanguagesBelow", String.valueOf(defaults.pauseLanguagesBelow))))
+        .quotaErrorCooldownSeconds(Long.getLong("zoom.translator.quota.quotaErrorCooldownSeconds", defaults.quotaErrorCooldownSeconds))
+        .widenedBatchFactor(Integer.getInteger("zoom.translator.quota.widenedBatchFactor", defaults.widenedBatchFactor))
+        .widenedBatchDelayMillis(Integer.getInteger("zoom.translator.quota.widenedBatchDelayMillis", defaults.widenedBatchDelayMillis))
+        .translationWaitMillis(Long.getLong("zoom.translator.quota.translationWaitMillis", defaults.translationWaitMillis))
+        //
+        .build();
+  }
+
+  long projectPerMinute(QuotaResource resource) {
+    switch (resource) {
+    case SPEECH_AUDIO:
+      return speechAudioSecondsPerMinute * 1000;
+    case TRANSLATION_CHARACTERS:
+      return translationCharactersPerMinute;
+    default:
+      return translationRequestsPerMinute;
+    }
+  }
+
+  long sessionPerMinute(QuotaResource resource) {
+    switch (resource) {
+    case SPEECH_AUDIO:
+      return sessionSpeechAudioSecondsPerMinute * 1000;
+    case TRANSLATION_CHARACTERS:
+      return sessionTranslationCharactersPerMinute;
+    default:
+      return sessionTranslationRequestsPerMinute;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.litongjava.zoom.translator.quota;
+
+/**
+ * What the Google quotas are counted in.
+ */
+public enum QuotaResource {
+  // milliseconds of audio sent to Speech
+  SPEECH_AUDIO,
+  // characters sent to translateText
+  TRANSLATION_CHARACTERS,
+  // translateText calls
+  TRANSLATION_REQUESTS
+}
@@ -0,0 +1,150 @@
+package com.litongjava.zoom.translator.quota;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.litongjava.zoom.translator.language.LanguageRouter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Central admission control in front of Speech and Translation for one Google Cloud project. Every call
+ * takes tokens from its session's buckets and from the shared project buckets; lower priority sessions
+ * leave a reserve of the project buckets to the classes above them.
+ * <p>
+ * The degradation level follows the emptiest project bucket and is raised for a while whenever the API
+ * answers RESOURCE_EXHAUSTED, so sessions back off before errors pile up. Budgets are per process; separate
+ * app instances sharing a project each need their share configured.
+ */
+@Slf4j
+public class QuotaScheduler {
+
+  // a level is only left once the fill ratio is this much above its threshold
+  private static final double HYSTERESIS = 0.05;
+
+  private final QuotaConfig config;
+  private final Map<QuotaResource, TokenBucket> projectBuckets = new EnumMap<>(QuotaResource.class);
+  private final LongAdder[] granted = adders();
+  private final LongAdder[] denied = adders();
+  private final LongAdder shedSilenceMillis = new LongAdder();
+  private final LongAdder quotaErrors = new LongAdder();
+
+  private volatile DegradationLevel level = DegradationLevel.NORMAL;
+  private DegradationLevel fillLevel = DegradationLevel.NORMAL;
+  private DegradationLevel errorLevel = DegradationLevel.NORMAL;
+  private long errorLevelUntilNanos;
+
+  public QuotaScheduler(QuotaConfig config) {
+    this.config = config;
+    for (QuotaResource resource : QuotaResource.values()) {
+      projectBuckets.put(resource, new TokenBucket(config.projectPerMinute(resource)));
+    }
+  }
+
+  public QuotaConfig getConfig() {
+    return config;
+  }
+
+  public SessionQuota session(String name, Priority priority, List<String> lowPriorityLanguages) {
+    Set<String> languages = new HashSet<>();
+    for (String language : lowPriorityLanguages) {
+      languages.add(LanguageRouter.baseLanguage(language));
+    }
+    Map<QuotaResource, TokenBucket> buckets = new EnumMap<>(QuotaResource.class);
+    if (priority != Priority.BACKGROUND) {
+      for (QuotaResource resource : QuotaResource.values()) {
+        buckets.put(resource, new TokenBucket(config.sessionPerMinute(resource)));
+      }
+    }
+    return new SessionQuota(this, name, priority, Collections.unmodifiableSet(languages), buckets);
+  }
+
+  public DegradationLevel level() {
+    return level;
+  }
+
+  TokenBucket bucket(QuotaResource resource) {
+    return projectBuckets.get(resource);
+  }
+
+  void record(Priority priority, boolean ok) {
+    (ok ? granted : denied)[priority.ordinal()].increment();
+    update();
+  }
+
+  void silenceShed(long millis) {
+    shedSilenceMillis.add(millis);
+  }
+
+  // Called when Speech or Translation answered RESOURCE_EXHAUSTED: our budgets are above the real quota
+  synchronized void quotaExceeded(String sessionName) {
+    quotaErrors.increment();
+    long now = System.nanoTime();
+    DegradationLevel base = now < errorLevelUntilNanos && errorLevel.atLeast(level) ? errorLevel : level;
+    errorLevel = base.shift(1);
+    errorLevelUntilNanos = now + TimeUnit.SECONDS.toNanos(config.getQuotaErrorCooldownSeconds());
+    log.warn("Quota exceeded in session " + sessionName + ", degrading to " + errorLevel);
+    update();
+  }
+
+  private synchronized void update() {
+    double fill = 1;
+    for (TokenBucket bucket : projectBuckets.values()) {
+      fill = Math.min(fill, bucket.fillRatio());
+    }
+    DegradationLevel target = fill < config.getPauseLanguagesBelow() ? DegradationLevel.PAUSE_LOW_PRIORITY_LANGUAGES
+        : fill < config.getWidenBatchesBelow() ? DegradationLevel.WIDEN_BATCHES
+            : fill < config.getSkipSilenceBelow() ? DegradationLevel.SKIP_SILENCE : DegradationLevel.NORMAL;
+    if (target.ordinal() < fillLevel.ordinal() && fill < threshold(fillLevel) + HYSTERESIS) {
+      target = fillLevel;
+    }
+    fillLevel = target;
+
+    DegradationLevel next = fillLevel;
+    if (System.nanoTime() < errorLevelUntilNanos && errorLevel.atLeast(next)) {
+      next = errorLevel;
+    }
+    if (next != level) {
+      log.warn("Quota pressure: degradation level " + level + " -> " + next + " (project buckets " + Math.round(fill * 100) + "% full)");
+      level = next;
+    }
+  }
+
+  private double threshold(DegradationLevel level) {
+    switch (level) {
+    case SKIP_SILENCE:
+      return config.getSkipSilenceBelow();
+    case WIDEN_BATCHES:
+      return config.getWidenBatchesBelow();
+    case PAUSE_LOW_PRIORITY_LANGUAGES:
+      return config.getPauseLanguagesBelow();
+    default:
+      return 1;
+    }
+  }
+
+  public void logMetrics() {
+    StringBuilder sb = new StringBuilder("Quota: level=").append(level);
+    for (Priority priority : Priority.values()) {
+      sb.append(", ").append(priority.name().toLowerCase()).append(" granted=").append(granted[priority.ordinal()].sum())
+          //
+          .append(" denied=").append(denied[priority.ordinal()].sum());
+    }
+    sb.append(", silence skipped=").append(shedSilenceMillis.sum() / 1000).append(" s, quota errors=").append(quotaErrors.sum());
+    log.info(sb.toString());
+  }
+
+  private static LongAdder[] adders() {
+    LongAdder[] adders = new LongAdder[Priority.values().length];
+    for (int i = 0; i < adders.length; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+}
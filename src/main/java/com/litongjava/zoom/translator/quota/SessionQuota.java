@@ -0,0 +1,161 @@
+package com.litongjava.zoom.translator.quota;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.litongjava.zoom.translator.language.LanguageRouter;
+
+/**
+ * One session's view of the {@link QuotaScheduler}: its own buckets, its priority and the degradation
+ * steps that currently apply to it.
+ */
+public class SessionQuota {
+
+  // Speech ends a stream that gets no audio for a while, so some silence is still sent
+  private static final long SILENCE_KEEPALIVE_MILLIS = 4000;
+
+  private final QuotaScheduler scheduler;
+  private final String name;
+  private final Priority priority;
+  private final Set<String> lowPriorityLanguages;
+  // empty for background sessions
+  private final Map<QuotaResource, TokenBucket> buckets;
+  // silence skipped since audio was last sent, recording thread only
+  private long skippedSilenceMillis;
+
+  SessionQuota(QuotaScheduler scheduler, String name, Priority priority, Set<String> lowPriorityLanguages, Map<QuotaResource, TokenBucket> buckets) {
+    this.scheduler = scheduler;
+    this.name = name;
+    this.priority = priority;
+    this.lowPriorityLanguages = lowPriorityLanguages;
+    this.buckets = buckets;
+  }
+
+  public Priority getPriority() {
+    return priority;
+  }
+
+  public DegradationLevel level() {
+    return scheduler.level().shift(priority.levelOffset);
+  }
+
+  public boolean tryAcquire(QuotaResource resource, long units) {
+    boolean ok = take(resource, units);
+    scheduler.record(priority, ok);
+    return ok;
+  }
+
+  // Waits up to timeoutMillis for the tokens, Long.MAX_VALUE waits as long as it takes
+  public boolean acquire(QuotaResource resource, long units, long timeoutMillis) throws InterruptedException {
+    boolean forever = timeoutMillis == Long.MAX_VALUE;
+    long deadline = forever ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (!take(resource, units)) {
+      long left = forever ? Long.MAX_VALUE : deadline - System.nanoTime();
+      if (left <= 0) {
+        scheduler.record(priority, false);
+        return false;
+      }
+      TokenBucket own = buckets.get(resource);
+      long wait = scheduler.bucket(resource).nanosUntil(units, priority.reserveFraction);
+      if (own != null) {
+        wait = Math.max(wait, own.nanosUntil(units, 0));
+      }
+      // others may take the tokens first, so check again at least every 100 ms
+      TimeUnit.NANOSECONDS.sleep(Math.max(TimeUnit.MILLISECONDS.toNanos(5), Math.min(Math.min(wait, left), TimeUnit.MILLISECONDS.toNanos(100))));
+    }
+    scheduler.record(priority, true);
+    return true;
+  }
+
+  // One translateText call: the request and its characters are granted together or not at all
+  public boolean acquireTranslation(long characters, long timeoutMillis) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    if (!acquire(QuotaResource.TRANSLATION_REQUESTS, 1, timeoutMillis)) {
+      return false;
+    }
+    long left = timeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, timeoutMillis - (System.currentTimeMillis() - start));
+    boolean granted = false;
+    try {
+      granted = acquire(QuotaResource.TRANSLATION_CHARACTERS, characters, left);
+    } finally {
+      if (!granted) {
+        release(QuotaResource.TRANSLATION_REQUESTS, 1);
+      }
+    }
+    return granted;
+  }
+
+  // A hedged translateText is billed like any other call: only sent at NORMAL and charged to the session
+  public boolean admitHedge(long characters) {
+    if (level() != DegradationLevel.NORMAL || !tryAcquire(QuotaResource.TRANSLATION_REQUESTS, 1)) {
+      return false;
+    }
+    if (!tryAcquire(QuotaResource.TRANSLATION_CHARACTERS, characters)) {
+      release(QuotaResource.TRANSLATION_REQUESTS, 1);
+      return false;
+    }
+    return true;
+  }
+
+  // Decides per captured chunk whether it goes to Speech, see AudioRecorder.AudioGate
+  public boolean admitAudio(int millis, boolean speech) {
+    if (!speech && level().atLeast(DegradationLevel.SKIP_SILENCE) && skippedSilenceMillis + millis < SILENCE_KEEPALIVE_MILLIS) {
+      skippedSilenceMillis += millis;
+      scheduler.silenceShed(millis);
+      return false;
+    }
+    if (!tryAcquire(QuotaResource.SPEECH_AUDIO, millis)) {
+      return false;
+    }
+    skippedSilenceMillis = 0;
+    return true;
+  }
+
+  public boolean isPaused(String languageCode) {
+    return level().atLeast(DegradationLevel.PAUSE_LOW_PRIORITY_LANGUAGES) && lowPriorityLanguages.contains(LanguageRouter.baseLanguage(languageCode));
+  }
+
+  public int translationBatchSize(int configured) {
+    return level().atLeast(DegradationLevel.WIDEN_BATCHES) ? configured * scheduler.getConfig().getWidenedBatchFactor() : configured;
+  }
+
+  public int translationBatchDelayMillis(int configured) {
+    return level().atLeast(DegradationLevel.WIDEN_BATCHES) ? Math.max(configured, scheduler.getConfig().getWidenedBatchDelayMillis()) : configured;
+  }
+
+  // Session bucket first, then the project bucket above this priority's reserve
+  private boolean take(QuotaResource resource, long units) {
+    TokenBucket own = buckets.get(resource);
+    if (own != null && !own.tryAcquire(units, 0)) {
+      return false;
+    }
+    if (!scheduler.bucket(resource).tryAcquire(units, priority.reserveFraction)) {
+      if (own != null) {
+        own.release(units);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private void release(QuotaResource resource, long units) {
+    TokenBucket own = buckets.get(resource);
+    if (own != null) {
+      own.release(units);
+    }
+    scheduler.bucket(resource).release(units);
+  }
+
+  // Feeds RESOURCE_EXHAUSTED answers back into the scheduler, other errors are ignored
+  public void reportError(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof ApiException && ((ApiException) t).getStatusCode().getCode() == StatusCode.Code.RESOURCE_EXHAUSTED) {
+        scheduler.quotaExceeded(name);
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.litongjava.zoom.translator.quota;
+
+/**
+ * Classic token bucket refilled continuously. Requests larger than what a caller may take above its reserve
+ * are clamped to that, so a single big call can still pass once the bucket is full.
+ */
+public class TokenBucket {
+
+  private final double capacity;
+  private final double tokensPerNano;
+  private double tokens;
+  private long lastRefillNanos;
+
+  // capacity = one minute of budget
+  public TokenBucket(long perMinute) {
+    this.capacity = perMinute;
+    this.tokensPerNano = perMinute / 60e9;
+    this.tokens = perMinute;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  // Takes units only if at least reserveFraction of the capacity stays in the bucket afterwards
+  public synchronized boolean tryAcquire(long units, double reserveFraction) {
+    refill();
+    double needed = needed(units, reserveFraction);
+    if (tokens - needed < capacity * reserveFraction) {
+      return false;
+    }
+    tokens -= needed;
+    return true;
+  }
+
+  public synchronized void release(long units) {
+    tokens = Math.min(capacity, tokens + Math.min(units, capacity));
+  }
+
+  // How long until tryAcquire(units, reserveFraction) could succeed if nobody else takes tokens
+  public synchronized long nanosUntil(long units, double reserveFraction) {
+    refill();
+    double missing = needed(units, reserveFraction) + capacity * reserveFraction - tokens;
+    return missing <= 0 ? 0 : (long) (missing / tokensPerNano);
+  }
+
+  public synchronized double fillRatio() {
+    refill();
+    return tokens / capacity;
+  }
+
+  private double needed(long units, double reserveFraction) {
+    return Math.min(units, capacity * (1 - reserveFraction));
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+    lastRefillNanos = now;
+  }
+}
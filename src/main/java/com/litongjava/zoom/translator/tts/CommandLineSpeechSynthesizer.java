@@ -0,0 +1,161 @@
+package com.litongjava.zoom.translator.tts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.litongjava.zoom.translator.language.LanguageRouter;
+
+/**
+ * Offline synthesis with the speech engine that ships with the OS: {@code say} on macOS, {@code espeak-ng}
+ * on Linux and System.Speech through PowerShell on Windows. Text is passed as UTF-8 on stdin (in a temp file
+ * for PowerShell), never on a command line, and the engine writes a WAV file that is converted to
+ * {@link #OUTPUT_FORMAT}.
+ */
+public class CommandLineSpeechSynthesizer implements SpeechSynthesizer {
+
+  private static final long TIMEOUT_SECONDS = 15;
+
+  private final Engine engine;
+  // engine specific voice name, empty = derive from the language
+  private final String voice;
+
+  public enum Engine {
+    SAY, ESPEAK, POWERSHELL;
+
+    public static Engine detect() {
+      String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+      if (os.contains("mac")) {
+        return SAY;
+      }
+      if (os.contains("win")) {
+        return POWERSHELL;
+      }
+      return ESPEAK;
+    }
+
+    // "auto" = detect()
+    public static Engine forName(String name) {
+      if (name == null || name.isEmpty() || "auto".equalsIgnoreCase(name)) {
+        return detect();
+      }
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown ttsEngine: " + name);
+      }
+    }
+  }
+
+  public CommandLineSpeechSynthesizer(Engine engine, String voice) {
+    this.engine = engine;
+    this.voice = voice == null ? "" : voice;
+  }
+
+  @Override
+  public String id() {
+    return engine.name().toLowerCase(Locale.ROOT) + ":" + voice;
+  }
+
+  @Override
+  public byte[] synthesize(String text, String languageCode) throws IOException {
+    File wav = File.createTempFile("zoom-translator-tts", ".wav");
+    // engine output goes to a file, so a hung engine cannot block us on its stdout and the timeout applies
+    File output = File.createTempFile("zoom-translator-tts", ".log");
+    // PowerShell would decode stdin in the console code page, which turns Chinese into '?'
+    File input = File.createTempFile("zoom-translator-tts", ".txt");
+    try {
+      byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+      if (engine == Engine.POWERSHELL) {
+        Files.write(input.toPath(), utf8);
+      }
+      Process process = new ProcessBuilder(command(wav, input, languageCode)).redirectErrorStream(true).redirectOutput(output).start();
+      try (OutputStream stdin = process.getOutputStream()) {
+        if (engine != Engine.POWERSHELL) {
+          stdin.write(utf8);
+        }
+      }
+      if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        throw new IOException(engine + " did not finish within " + TIMEOUT_SECONDS + " s");
+      }
+      if (process.exitValue() != 0) {
+        throw new IOException(engine + " exited with " + process.exitValue() + ": " + readAll(output).trim());
+      }
+      try (AudioInputStream source = AudioSystem.getAudioInputStream(wav);
+          //
+          AudioInputStream converted = AudioSystem.getAudioInputStream(OUTPUT_FORMAT, source)) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = converted.read(buffer)) > 0) {
+          out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while synthesizing", e);
+    } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+      throw new IOException("Cannot read " + engine + " output: " + e.getMessage(), e);
+    } finally {
+      for (File tmp : new File[] { wav, output, input }) {
+        if (!tmp.delete()) {
+          tmp.deleteOnExit();
+        }
+      }
+    }
+  }
+
+  private List<String> command(File wav, File input, String languageCode) {
+    String language = LanguageRouter.baseLanguage(languageCode);
+    List<String> command = new ArrayList<>();
+    switch (engine) {
+    case SAY:
+      command.add("say");
+      String sayVoice = !voice.isEmpty() ? voice : "zh".equals(language) ? "Tingting" : "";
+      if (!sayVoice.isEmpty()) {
+        command.add("-v");
+        command.add(sayVoice);
+      }
+      command.add("--data-format=LEI16@16000");
+      command.add("-o");
+      command.add(wav.getAbsolutePath());
+      break;
+    case ESPEAK:
+      command.add("espeak-ng");
+      command.add("-v");
+      command.add(!voice.isEmpty() ? voice : "zh".equals(language) ? "cmn" : language);
+      command.add("-w");
+      command.add(wav.getAbsolutePath());
+      command.add("--stdin");
+      break;
+    default:
+      String culture = voice.isEmpty() ? languageCode : voice;
+      command.add("powershell");
+      command.add("-NoProfile");
+      command.add("-Command");
+      command.add("Add-Type -AssemblyName System.Speech; $s = New-Object System.Speech.Synthesis.SpeechSynthesizer; "
+          + "try { $s.SelectVoiceByHints('NotSet', 'NotSet', 0, [Globalization.CultureInfo]'" + culture.replace("'", "") + "') } catch {}; "
+          + "$s.SetOutputToWaveFile('" + wav.getAbsolutePath().replace("'", "''") + "'); "
+          + "$s.Speak([IO.File]::ReadAllText('" + input.getAbsolutePath().replace("'", "''") + "', [Text.Encoding]::UTF8)); $s.Dispose()");
+      break;
+    }
+    return command;
+  }
+
+  private static String readAll(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+}
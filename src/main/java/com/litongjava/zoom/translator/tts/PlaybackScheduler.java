@@ -0,0 +1,168 @@
+package com.litongjava.zoom.translator.tts;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Speaks translated captions in order while keeping the voice a fixed latency behind the speaker. Synthesis
+ * runs on its own thread ahead of playback, so the next phrase is usually ready when the current one ends.
+ * A phrase's lag is the time since the speaker finished it on the capture clock. Phrases already older than
+ * {@code maxLatencyMillis} are skipped before synthesis and again before playback, and a phrase that would
+ * end past that budget is sped up, at most to {@code maxSpeed}.
+ */
+@Slf4j
+public class PlaybackScheduler {
+
+  private static final Item STOP = new Item(null, null, 0, null);
+
+  private final SpeechSynthesizer synthesizer;
+  private final SynthesisCache cache;
+  private final long maxLatencyMillis;
+  private final float maxSpeed;
+
+  private final BlockingQueue<Item> queue = new LinkedBlockingQueue<>();
+  private ExecutorService synthesisExecutor;
+  private Thread player;
+  private SourceDataLine line;
+  private volatile boolean running;
+
+  private long played;
+  private long dropped;
+  private long stretched;
+  private long failed;
+
+  public PlaybackScheduler(SpeechSynthesizer synthesizer, SynthesisCache cache, long maxLatencyMillis, float maxSpeed) {
+    this.synthesizer = synthesizer;
+    this.cache = cache;
+    this.maxLatencyMillis = maxLatencyMillis;
+    this.maxSpeed = Math.max(1f, maxSpeed);
+  }
+
+  public synchronized void start() throws LineUnavailableException {
+    if (running) {
+      return;
+    }
+    line = AudioSystem.getSourceDataLine(SpeechSynthesizer.OUTPUT_FORMAT);
+    line.open(SpeechSynthesizer.OUTPUT_FORMAT);
+    line.start();
+    synthesisExecutor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "TtsSynthesisThread");
+      t.setDaemon(true);
+      return t;
+    });
+    running = true;
+    player = new Thread(this::playLoop, "TtsPlaybackThread");
+    player.setDaemon(true);
+    player.start();
+  }
+
+  // spokenAtMillis: wall clock time the speaker finished the phrase, on the capture clock
+  public void speak(String text, String languageCode, long spokenAtMillis) {
+    if (!running || text == null || text.trim().isEmpty()) {
+      return;
+    }
+    // a backlog of stale phrases is skipped without synthesizing them, null = too late
+    Future<byte[]> audio = synthesisExecutor.submit(() -> lagMillis(spokenAtMillis) >= maxLatencyMillis ? null : cache.get(synthesizer, text, languageCode));
+    queue.offer(new Item(text, languageCode, spokenAtMillis, audio));
+  }
+
+  private static long lagMillis(long spokenAtMillis) {
+    return System.currentTimeMillis() - spokenAtMillis;
+  }
+
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    queue.clear();
+    queue.offer(STOP);
+    synthesisExecutor.shutdownNow();
+    // stop and flush first: a write blocked on a full line buffer only returns once the buffer drains
+    line.stop();
+    line.flush();
+    try {
+      player.join(TimeUnit.SECONDS.toMillis(2));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    line.close();
+    log.info("TTS played=" + played + ", dropped=" + dropped + ", stretched=" + stretched + ", failed=" + failed
+        + ", cache " + cache.stats());
+  }
+
+  private void playLoop() {
+    while (running) {
+      Item item;
+      try {
+        item = queue.take();
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (item == STOP) {
+        break;
+      }
+
+      byte[] pcm;
+      try {
+        pcm = item.audio.get();
+      } catch (InterruptedException e) {
+        break;
+      } catch (ExecutionException e) {
+        failed++;
+        log.error("Speech synthesis failed for [" + item.languageCode + "] " + item.text, e.getCause());
+        continue;
+      }
+
+      long lagMillis = lagMillis(item.spokenAtMillis);
+      long budgetMillis = maxLatencyMillis - lagMillis;
+      if (pcm == null || budgetMillis <= 0) {
+        dropped++;
+        log.info("Skipping speech " + lagMillis + " ms behind the speaker: " + item.text);
+        continue;
+      }
+      // 16 kHz 16-bit mono = 32 bytes per millisecond
+      long durationMillis = pcm.length / 32;
+      if (durationMillis > budgetMillis) {
+        float speed = Math.min(maxSpeed, (float) durationMillis / budgetMillis);
+        pcm = TimeStretcher.speedUp(pcm, speed);
+        stretched++;
+      }
+      write(pcm);
+      played++;
+    }
+  }
+
+  private void write(byte[] pcm) {
+    // small writes so stop() does not wait for a whole sentence
+    int chunk = 3200;
+    for (int off = 0; off < pcm.length && running; off += chunk) {
+      line.write(pcm, off, Math.min(chunk, pcm.length - off));
+    }
+  }
+
+  private static class Item {
+    final String text;
+    final String languageCode;
+    final long spokenAtMillis;
+    final Future<byte[]> audio;
+
+    Item(String text, String languageCode, long spokenAtMillis, Future<byte[]> audio) {
+      this.text = text;
+      this.languageCode = languageCode;
+      this.spokenAtMillis = spokenAtMillis;
+      this.audio = audio;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.litongjava.zoom.translator.tts;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Turns text into PCM audio in {@link #OUTPUT_FORMAT}.
+ */
+public interface SpeechSynthesizer {
+
+  // 16 kHz 16-bit signed little-endian mono, same as the capture side
+  AudioFormat OUTPUT_FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+  byte[] synthesize(String text, String languageCode) throws IOException;
+
+  // Engine and voice identity, part of the cache key so switching voices does not replay stale audio
+  String id();
+}
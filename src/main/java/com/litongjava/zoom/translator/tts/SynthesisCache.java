@@ -0,0 +1,173 @@
+package com.litongjava.zoom.translator.tts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed store of synthesized audio. The key is the SHA-256 of engine id, language and text, so
+ * a phrase is synthesized once per voice no matter how often it is said. Recent entries stay in memory up
+ * to {@code maxMemoryBytes}; every entry is also written to {@code directory} as raw PCM and survives
+ * restarts. The directory is kept under {@code maxDiskBytes} by deleting the least recently used files,
+ * a file's mtime being refreshed on every hit.
+ */
+@Slf4j
+public class SynthesisCache {
+
+  private final File directory;
+  private final long maxMemoryBytes;
+  private final long maxDiskBytes;
+  private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryBytes;
+  // -1 until the directory was scanned once
+  private long diskBytes = -1;
+  private long evicted;
+  private long hits;
+  private long misses;
+
+  public SynthesisCache(File directory, long maxMemoryBytes, long maxDiskBytes) {
+    this.directory = directory;
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.maxDiskBytes = maxDiskBytes;
+  }
+
+  public byte[] get(SpeechSynthesizer synthesizer, String text, String languageCode) throws IOException {
+    String key = key(synthesizer.id(), languageCode, text);
+    byte[] pcm = fromMemory(key);
+    File file = file(key);
+    if (pcm == null && file.isFile()) {
+      try {
+        pcm = Files.readAllBytes(file.toPath());
+        toMemory(key, pcm);
+      } catch (IOException e) {
+        // evicted between isFile and the read
+        log.debug("TTS cache entry " + file + " vanished: " + e.getMessage());
+      }
+    }
+    if (pcm != null) {
+      // mtime is the LRU order of the disk cache
+      file.setLastModified(System.currentTimeMillis());
+    }
+    if (pcm != null) {
+      synchronized (this) {
+        hits++;
+      }
+      return pcm;
+    }
+
+    synchronized (this) {
+      misses++;
+    }
+    pcm = synthesizer.synthesize(text, languageCode);
+    toMemory(key, pcm);
+    if (write(file, pcm)) {
+      onDisk(pcm.length);
+    }
+    return pcm;
+  }
+
+  public synchronized String stats() {
+    return "hits=" + hits + ", misses=" + misses + ", memoryBytes=" + memoryBytes + ", diskBytes=" + diskBytes + ", evicted=" + evicted;
+  }
+
+  private synchronized byte[] fromMemory(String key) {
+    return memory.get(key);
+  }
+
+  private synchronized void toMemory(String key, byte[] pcm) {
+    byte[] previous = memory.put(key, pcm);
+    memoryBytes += pcm.length - (previous == null ? 0 : previous.length);
+    Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+    while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+      memoryBytes -= it.next().getValue().length;
+      it.remove();
+    }
+  }
+
+  private boolean write(File file, byte[] pcm) {
+    File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      log.warn("Could not create TTS cache directory " + dir);
+      return false;
+    }
+    try {
+      // write then move, so a reader never sees half a file
+      File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+      Files.write(tmp.toPath(), pcm);
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch (IOException e) {
+      log.warn("Failed to write TTS cache entry " + file + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  // Only rescans the directory when over budget, then trims it to 90% so the next entries do not rescan
+  private synchronized void onDisk(long bytes) {
+    if (diskBytes >= 0) {
+      diskBytes += bytes;
+      if (diskBytes <= maxDiskBytes) {
+        return;
+      }
+    }
+    List<File> files = new ArrayList<>();
+    File[] dirs = directory.listFiles(File::isDirectory);
+    if (dirs != null) {
+      for (File dir : dirs) {
+        File[] entries = dir.listFiles((d, name) -> name.endsWith(".pcm"));
+        if (entries != null) {
+          for (File entry : entries) {
+            files.add(entry);
+          }
+        }
+      }
+    }
+    diskBytes = 0;
+    for (File file : files) {
+      diskBytes += file.length();
+    }
+    if (diskBytes <= maxDiskBytes) {
+      return;
+    }
+    files.sort(Comparator.comparingLong(File::lastModified));
+    long target = maxDiskBytes / 10 * 9;
+    for (Iterator<File> it = files.iterator(); diskBytes > target && it.hasNext();) {
+      File file = it.next();
+      long length = file.length();
+      if (file.delete()) {
+        diskBytes -= length;
+        evicted++;
+      }
+    }
+  }
+
+  private File file(String key) {
+    return new File(new File(directory, key.substring(0, 2)), key + ".pcm");
+  }
+
+  private static String key(String engineId, String languageCode, String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest((engineId + '\n' + languageCode + '\n' + text).getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}